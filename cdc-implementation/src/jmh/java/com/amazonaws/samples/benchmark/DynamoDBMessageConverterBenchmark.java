@@ -0,0 +1,49 @@
+package com.amazonaws.samples.benchmark;
+
+import com.amazonaws.samples.configuration.DynamoDBMessageConverter;
+import com.amazonaws.samples.model.FlightChange;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding a DynamoDB stream record delivered by Kinesis into a {@link FlightChange}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamoDBMessageConverterBenchmark {
+    static final String INSERT_RECORD = """
+            {"awsRegion":"eu-west-1","eventID":"7b3a1e4c-93c2-4a4e-9d4f-0f6a6a1c2b11","eventName":"INSERT",
+            "userIdentity":null,"recordFormat":"application/json","tableName":"flight",
+            "dynamodb":{"ApproximateCreationDateTime":1693555200000,
+            "Keys":{"id":{"S":"0f8fad5b-d9cb-469f-a165-70867728950e"}},
+            "NewImage":{"id":{"S":"0f8fad5b-d9cb-469f-a165-70867728950e"},
+            "departureAirport":{"S":"Paris"},"arrivalAirport":{"S":"London"},
+            "departureDateTime":{"S":"2023-09-01T08:00"},"arrivalDateTime":{"S":"2023-09-01T08:15"}},
+            "SizeBytes":212},"eventSource":"aws:dynamodb"}""";
+
+    private DynamoDBMessageConverter converter;
+    private Message<byte[]> message;
+
+    @Setup
+    public void setUp() {
+        converter = new DynamoDBMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+        message = MessageBuilder.withPayload(INSERT_RECORD.getBytes(StandardCharsets.UTF_8))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/ddb")
+                .build();
+    }
+
+    @Benchmark
+    public Object convert() {
+        return converter.fromMessage(message, FlightChange.class);
+    }
+}
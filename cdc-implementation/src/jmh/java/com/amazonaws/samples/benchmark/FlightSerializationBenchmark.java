@@ -0,0 +1,38 @@
+package com.amazonaws.samples.benchmark;
+
+import com.amazonaws.samples.model.Flight;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing a {@link Flight} into the SQS message body, as done in {@code QueueService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlightSerializationBenchmark {
+    private ObjectMapper objectMapper;
+    private Flight flight;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        flight = new Flight();
+        flight.setDepartureAirport("Paris");
+        flight.setArrivalAirport("London");
+        flight.setDepartureDateTime(LocalDateTime.of(2023, 9, 1, 8, 0));
+        flight.setArrivalDateTime(LocalDateTime.of(2023, 9, 1, 8, 15));
+    }
+
+    @Benchmark
+    public String serializeFlight() throws Exception {
+        return objectMapper.writeValueAsString(flight);
+    }
+}
@@ -0,0 +1,202 @@
+package com.amazonaws.samples.loadtest;
+
+import com.amazonaws.samples.model.Flight;
+import com.amazonaws.samples.model.ProcessedEvent;
+import com.amazonaws.services.dynamodbv2.local.embedded.DynamoDBEmbedded;
+import com.amazonaws.services.dynamodbv2.local.shared.access.AmazonDynamoDBLocal;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures commit-to-SQS and commit-to-payment latency of bookings, with stream records published by the test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sqs.queue_name=flightQueue.fifo",
+        "kinesisstreamname=flight-stream",
+        "spring.cloud.stream.default-binder=integration",
+        "spring.cloud.aws.region.static=us-east-1",
+        "spring.cloud.aws.credentials.access-key=local",
+        "spring.cloud.aws.credentials.secret-key=local"
+})
+@Import(TestChannelBinderConfiguration.class)
+class CdcLoadTest {
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 2000);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final long TIMEOUT_S = Long.getLong("loadtest.timeout_s", 120);
+    private static final int RECORDS_LIMIT = Integer.getInteger("loadtest.records_limit", 500);
+    private static final String BOOKING = """
+            {"departureAirport":"Paris","arrivalAirport":"London",
+            "departureDateTime":"2023-09-01T08:00:00","arrivalDateTime":"2023-09-01T08:15:00"}""";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private InMemorySqs sqs;
+
+    @Autowired
+    private InputDestination kinesis;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void sustainedBookings() throws Exception {
+        Map<String, Long> committed = new ConcurrentHashMap<>();
+        Map<String, Long> published = new ConcurrentHashMap<>();
+        Map<String, Long> processed = new ConcurrentHashMap<>();
+        sqs.setListener(new InMemorySqs.Listener() {
+            @Override
+            public void onSent(Message message, long nanoTime) {
+                published.put(read(message.body()).get("id").asText(), nanoTime);
+            }
+
+            @Override
+            public void onDeleted(Message message, long nanoTime) {
+                processed.put(read(message.body()).get("id").asText(), nanoTime);
+            }
+        });
+
+        URI bookings = URI.create("http://localhost:" + port + "/api/flights");
+        HttpClient httpClient = HttpClient.newHttpClient();
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        BlockingQueue<byte[]> stream = new LinkedBlockingQueue<>();
+        Thread shard = new Thread(() -> {
+            try {
+                while (true) {
+                    List<byte[]> records = new ArrayList<>(RECORDS_LIMIT);
+                    records.add(stream.take());
+                    stream.drainTo(records, RECORDS_LIMIT - 1);
+                    kinesis.send(MessageBuilder.withPayload(records)
+                            .setHeader(MessageHeaders.CONTENT_TYPE, "application/ddb")
+                            .build(), "flight-stream");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "shard");
+        shard.start();
+        List<Future<?>> responses = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(clients.submit(() -> {
+                HttpRequest request = HttpRequest.newBuilder(bookings)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(BOOKING))
+                        .build();
+                JsonNode flight = read(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body());
+                committed.put(flight.get("id").asText(), System.nanoTime());
+                stream.add(streamRecord(flight));
+                return null;
+            }));
+        }
+        for (Future<?> response : responses) {
+            response.get();
+        }
+        clients.shutdown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_S);
+        while (processed.size() < REQUESTS && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        shard.interrupt();
+
+        System.out.println(new LoadTestReport("CDC implementation", REQUESTS, CONCURRENCY)
+                .latency("commit-to-SQS", committed, published)
+                .latency("commit-to-payment", committed, processed)
+                .throughput("bookings", committed.values(), committed.values())
+                .throughput("end-to-end", committed.values(), processed.values()));
+        assertEquals(REQUESTS, processed.size(), "bookings processed by the Payment service");
+    }
+
+    /**
+     * The record DynamoDB Streams writes to Kinesis for the insertion of {@code flight}.
+     */
+    private byte[] streamRecord(JsonNode flight) {
+        String image = String.format("""
+                        {"id":{"S":"%s"},"departureAirport":{"S":"%s"},"arrivalAirport":{"S":"%s"},\
+                        "departureDateTime":{"S":"%s"},"arrivalDateTime":{"S":"%s"}}""",
+                flight.get("id").asText(), flight.get("departureAirport").asText(),
+                flight.get("arrivalAirport").asText(), flight.get("departureDateTime").asText(),
+                flight.get("arrivalDateTime").asText());
+        return String.format("""
+                        {"eventID":"%s","eventName":"INSERT","tableName":"flight","dynamodb":{\
+                        "ApproximateCreationDateTime":%d,"Keys":{"id":{"S":"%s"}},"NewImage":%s},\
+                        "eventSource":"aws:dynamodb"}""",
+                UUID.randomUUID().toString().replace("-", ""), System.currentTimeMillis(), flight.get("id").asText(),
+                image).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private JsonNode read(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected flight payload " + json, e);
+        }
+    }
+
+    @TestConfiguration
+    static class LocalStandIns {
+
+        @Bean(destroyMethod = "shutdown")
+        AmazonDynamoDBLocal dynamoDBLocal() {
+            return DynamoDBEmbedded.create();
+        }
+
+        @Bean
+        DynamoDbClient dynamoDbClient(AmazonDynamoDBLocal dynamoDBLocal) {
+            DynamoDbClient dynamoDbClient = dynamoDBLocal.dynamoDbClient();
+            DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+            enhancedClient.table("flight", TableSchema.fromBean(Flight.class)).createTable();
+            enhancedClient.table("processed_event", TableSchema.fromBean(ProcessedEvent.class)).createTable();
+            return dynamoDbClient;
+        }
+
+        @Bean
+        InMemorySqs inMemorySqs() {
+            return new InMemorySqs();
+        }
+
+        @Bean
+        @Primary
+        SqsClient inMemorySqsClient(InMemorySqs inMemorySqs) {
+            return inMemorySqs.syncClient();
+        }
+    }
+}
@@ -2,14 +2,18 @@ package com.amazonaws.samples.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.messaging.converter.MessageConverter;
-import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import software.amazon.awssdk.services.sqs.SqsClient;
 
 @Configuration
-@EnableRetry
 @EnableScheduling
 @AllArgsConstructor
 public class CustomConfiguration {
@@ -21,4 +25,28 @@ public class CustomConfiguration {
         return new DynamoDBMessageConverter(this.objectMapper);
     }
 
+    @Bean(destroyMethod = "close")
+    public SqsClient sqsClient() {
+        return SqsClient.builder()
+                .build();
+    }
+
+    /**
+     * Runs each scan segment of each request on a thread of its own, so that concurrent scans do not queue.
+     */
+    @Bean
+    public SimpleAsyncTaskExecutor scanExecutor(@Value("${execution.threads}") ThreadMode threadMode) {
+        return new SimpleAsyncTaskExecutor(threadMode.threadFactory("flight-scan-"));
+    }
+
+    /**
+     * Handles each request on a virtual thread of its own instead of Tomcat's pool.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "execution.threads", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequests() {
+        return protocolHandler ->
+                protocolHandler.setExecutor(new SimpleAsyncTaskExecutor(ThreadMode.VIRTUAL.threadFactory("http-")));
+    }
+
 }
@@ -2,7 +2,9 @@ package com.amazonaws.samples.configuration;
 
 import com.amazonaws.samples.AwsOutboxCDCSampleApplication;
 import com.amazonaws.samples.model.Flight;
-import com.fasterxml.jackson.core.TreeNode;
+import com.amazonaws.samples.model.FlightChange;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -14,9 +16,15 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.MimeType;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
 
+/**
+ * Decodes DynamoDB stream records straight into {@link FlightChange flight changes}, without a JSON tree.
+ */
 @Component
 public class DynamoDBMessageConverter extends AbstractMessageConverter {
 
@@ -30,27 +38,117 @@ public class DynamoDBMessageConverter extends AbstractMessageConverter {
 
     @Override
     protected boolean supports(Class<?> clazz) {
-        return clazz.equals(Flight.class);
+        return clazz.equals(FlightChange.class);
     }
 
     @Override
     protected Object convertFromInternal(Message<?> message, @NotNull Class<?> targetClass, @Nullable Object conversionHint) {
-        try {
-            TreeNode flightJson = objectMapper.readTree((byte[]) message.getPayload()).get("dynamodb").get("NewImage");
-            String departureAirport = flightJson.get("departureAirport").get("S").toString();
-            String arrivalAirport = flightJson.get("arrivalAirport").get("S").toString();
-            LocalDateTime departureDateTime = LocalDateTime.parse(flightJson.get("departureDateTime").get("S").toString().replaceAll("\"", ""), DateTimeFormatter.ISO_DATE_TIME);
-            LocalDateTime arrivalDateTime = LocalDateTime.parse(flightJson.get("arrivalDateTime").get("S").toString().replaceAll("\"", ""), DateTimeFormatter.ISO_DATE_TIME);
-            Flight flight = new Flight();
-            flight.setDepartureAirport(departureAirport);
-            flight.setArrivalAirport(arrivalAirport);
-            flight.setDepartureDateTime(departureDateTime);
-            flight.setArrivalDateTime(arrivalDateTime);
-            return flight;
-        } catch (IOException e) {
+        try (JsonParser parser = objectMapper.getFactory().createParser((byte[]) message.getPayload())) {
+            return readRecord(parser);
+        } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
             logger.error("Error converting DynamoDB stream message", e);
             return null;
         }
     }
-}
 
+    private FlightChange readRecord(JsonParser parser) throws IOException {
+        expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+        String eventId = null;
+        FlightChange.EventName eventName = null;
+        Instant approximateCreationTime = null;
+        Flight newImage = null;
+        Flight oldImage = null;
+        Flight keys = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("eventID".equals(field)) {
+                eventId = parser.getText();
+            } else if ("eventName".equals(field)) {
+                eventName = FlightChange.EventName.valueOf(parser.getText());
+            } else if ("dynamodb".equals(field)) {
+                expect(parser, value, JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String dynamodbField = parser.currentName();
+                    parser.nextToken();
+                    switch (dynamodbField) {
+                        case "ApproximateCreationDateTime" -> approximateCreationTime = Instant.ofEpochMilli(parser.getLongValue());
+                        case "NewImage" -> newImage = readFlight(parser);
+                        case "OldImage" -> oldImage = readFlight(parser);
+                        case "Keys" -> keys = readFlight(parser);
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        Flight flight = newImage != null ? newImage : oldImage != null ? oldImage : keys;
+        if (eventName == null || flight == null) {
+            throw new IOException("DynamoDB stream record without eventName or flight image");
+        }
+        return new FlightChange(eventId, eventName, flight, approximateCreationTime);
+    }
+
+    private Flight readFlight(JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        UUID id = null;
+        String departureAirport = null;
+        String arrivalAirport = null;
+        LocalDateTime departureDateTime = null;
+        LocalDateTime arrivalDateTime = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String attribute = parser.currentName();
+            parser.nextToken();
+            String value = readString(parser);
+            if (value == null) {
+                continue;
+            }
+            switch (attribute) {
+                case "id" -> id = UUID.fromString(value);
+                case "departureAirport" -> departureAirport = value;
+                case "arrivalAirport" -> arrivalAirport = value;
+                case "departureDateTime" -> departureDateTime = LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME);
+                case "arrivalDateTime" -> arrivalDateTime = LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME);
+                default -> {
+                }
+            }
+        }
+        if (id == null) {
+            throw new IOException("DynamoDB stream image without flight id");
+        }
+        Flight flight = new Flight(id);
+        flight.setDepartureAirport(departureAirport);
+        flight.setArrivalAirport(arrivalAirport);
+        flight.setDepartureDateTime(departureDateTime);
+        flight.setArrivalDateTime(arrivalDateTime);
+        return flight;
+    }
+
+    /**
+     * Returns the value of a DynamoDB string attribute, or {@code null} for other types.
+     */
+    private static String readString(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String type = parser.currentName();
+            parser.nextToken();
+            if ("S".equals(type)) {
+                value = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual + " at " + parser.currentLocation());
+        }
+    }
+}
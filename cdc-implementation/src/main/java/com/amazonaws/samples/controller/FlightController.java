@@ -1,25 +1,150 @@
 package com.amazonaws.samples.controller;
 
 import com.amazonaws.samples.model.Flight;
+import com.amazonaws.samples.model.FlightPage;
+import com.amazonaws.samples.service.FlightCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.awspring.cloud.dynamodb.DynamoDbTemplate;
 import jakarta.validation.Valid;
-import lombok.AllArgsConstructor;
-import org.apache.commons.collections4.IterableUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 @RestController
 @RequestMapping("/api")
-@AllArgsConstructor
 public class FlightController {
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private final DynamoDbTemplate dynamoDbTemplate;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor scanExecutor;
+    private final FlightCache flightCache;
+    private final int scanSegments;
 
+    public FlightController(DynamoDbTemplate dynamoDbTemplate, ObjectMapper objectMapper,
+                            @Qualifier("scanExecutor") AsyncTaskExecutor scanExecutor, FlightCache flightCache,
+                            @Value("${dynamodb.scan_segments}") int scanSegments) {
+        this.dynamoDbTemplate = dynamoDbTemplate;
+        this.objectMapper = objectMapper;
+        this.scanExecutor = scanExecutor;
+        this.flightCache = flightCache;
+        this.scanSegments = scanSegments;
+    }
+
+    /**
+     * Streams all flights as a JSON array, scanning the table in parallel segments, in no particular order.
+     */
     @GetMapping("/flights")
-    public List<Flight> getAllFlights() {
-        return IterableUtils.toList(dynamoDbTemplate.scanAll(Flight.class).items());
+    public ResponseEntity<StreamingResponseBody> getAllFlights() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)) {
+                generator.writeStartArray();
+                Lock writeLock = new ReentrantLock();
+                AtomicBoolean failed = new AtomicBoolean();
+                List<CompletableFuture<Void>> segments = new ArrayList<>(scanSegments);
+                for (int segment = 0; segment < scanSegments; segment++) {
+                    ScanEnhancedRequest request = ScanEnhancedRequest.builder()
+                            .segment(segment)
+                            .totalSegments(scanSegments)
+                            .build();
+                    segments.add(CompletableFuture.runAsync(
+                            () -> writeSegment(request, generator, writeLock, failed), scanExecutor));
+                }
+                CompletableFuture.allOf(segments.toArray(CompletableFuture[]::new)).join();
+                generator.writeEndArray();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Writes the flights of a segment, stopping early once another segment failed.
+     */
+    private void writeSegment(ScanEnhancedRequest request, JsonGenerator generator, Lock writeLock,
+                              AtomicBoolean failed) {
+        try {
+            for (Page<Flight> page : dynamoDbTemplate.scan(request, Flight.class)) {
+                if (failed.get()) {
+                    return;
+                }
+                writeLock.lock();
+                try {
+                    for (Flight flight : page.items()) {
+                        generator.writeObject(flight);
+                    }
+                    generator.flush();
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            failed.set(true);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the page of flights after the {@code after} cursor.
+     */
+    @GetMapping("/flights/page")
+    public FlightPage getFlights(@RequestParam(required = false) String after,
+                                 @RequestParam(defaultValue = "100") int limit) {
+        ScanEnhancedRequest.Builder request = ScanEnhancedRequest.builder()
+                .limit(Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        if (after != null) {
+            request.exclusiveStartKey(Map.of("id", AttributeValue.fromS(after)));
+        }
+        Page<Flight> page = dynamoDbTemplate.scan(request.build(), Flight.class).iterator().next();
+        Map<String, AttributeValue> lastEvaluatedKey = page.lastEvaluatedKey();
+        String next = lastEvaluatedKey == null ? null : lastEvaluatedKey.get("id").s();
+        return new FlightPage(page.items(), next);
+    }
+
+    /**
+     * Returns a flight, from the {@link FlightCache} when it holds it.
+     */
+    @GetMapping("/flights/{id}")
+    public Flight getFlight(@PathVariable UUID id) {
+        return flightCache.get(id, this::loadFlight)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight " + id + " not found"));
     }
 
     @PostMapping("/flights")
@@ -27,4 +152,8 @@ public class FlightController {
     public Flight createFlight(@Valid @RequestBody Flight flight) {
         return dynamoDbTemplate.save(flight);
     }
+
+    private Optional<Flight> loadFlight(UUID id) {
+        return Optional.ofNullable(dynamoDbTemplate.load(Key.builder().partitionValue(id.toString()).build(), Flight.class));
+    }
 }
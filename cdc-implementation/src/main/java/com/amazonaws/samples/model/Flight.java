@@ -22,6 +22,10 @@ public class Flight {
         this.id = UUID.randomUUID();
     }
 
+    public Flight(UUID id) {
+        this.id = id;
+    }
+
     @DynamoDbPartitionKey
     public UUID getId() {
         return id;
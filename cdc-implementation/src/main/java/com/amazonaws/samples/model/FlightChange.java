@@ -0,0 +1,13 @@
+package com.amazonaws.samples.model;
+
+import java.time.Instant;
+
+/**
+ * A change to the flight table as captured by DynamoDB Streams.
+ */
+public record FlightChange(String eventId, EventName eventName, Flight flight, Instant approximateCreationTime) {
+
+    public enum EventName {
+        INSERT, MODIFY, REMOVE
+    }
+}
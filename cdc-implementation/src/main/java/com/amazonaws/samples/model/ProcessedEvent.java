@@ -0,0 +1,34 @@
+package com.amazonaws.samples.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+import java.time.Instant;
+
+/**
+ * A processed flight event, expired by DynamoDB at {@code expiresAt} (epoch seconds).
+ */
+@DynamoDbBean
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProcessedEvent {
+
+    private String id;
+    private Instant processedAt;
+    private Long expiresAt;
+
+    public ProcessedEvent(String id, Instant processedAt, Long expiresAt) {
+        this.id = id;
+        this.processedAt = processedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    @DynamoDbPartitionKey
+    public String getId() {
+        return id;
+    }
+}
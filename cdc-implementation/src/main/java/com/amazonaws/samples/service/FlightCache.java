@@ -0,0 +1,107 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.Flight;
+import com.amazonaws.samples.model.FlightChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of flights, invalidated from the flight table's Kinesis stream on every node.
+ */
+@Service
+public class FlightCache {
+    private final long ttlNanos;
+    private final Map<UUID, CachedFlight> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long invalidations;
+
+    public FlightCache(@Value("${cache.flights.max_size}") int maxSize,
+                       @Value("${cache.flights.ttl_s}") long ttlSeconds, MeterRegistry meterRegistry) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CachedFlight> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+    }
+
+    @Bean
+    public Consumer<List<FlightChange>> invalidateFlights() {
+        return changes -> invalidate(changes.stream()
+                .filter(Objects::nonNull)
+                .map(change -> change.flight().getId())
+                .toList());
+    }
+
+    /**
+     * Returns the cached flight, or loads it with {@code loader} and caches it.
+     */
+    public Optional<Flight> get(UUID id, Function<UUID, Optional<Flight>> loader) {
+        long generation;
+        lock.lock();
+        try {
+            CachedFlight cached = entries.get(id);
+            if (cached != null && System.nanoTime() - cached.cachedAt() <= ttlNanos) {
+                hits.increment();
+                return Optional.of(cached.flight());
+            }
+            generation = invalidations;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        Optional<Flight> flight = loader.apply(id);
+        flight.ifPresent(loaded -> put(id, loaded, generation));
+        return flight;
+    }
+
+    public void invalidate(List<UUID> ids) {
+        lock.lock();
+        try {
+            invalidations++;
+            ids.forEach(entries::remove);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(UUID id, Flight flight, long generation) {
+        lock.lock();
+        try {
+            if (invalidations == generation) {
+                entries.put(id, new CachedFlight(flight, System.nanoTime()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("flights.cache.lookups")
+                .description("Flight cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CachedFlight(Flight flight, long cachedAt) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.Flight;
+
+/**
+ * How the FIFO message group of a flight event is derived.
+ */
+public enum MessageGroupStrategy {
+    /**
+     * All events share one group: total order, but the queue is consumed one message at a time.
+     */
+    SINGLE,
+    /**
+     * One group per flight: events are ordered per flight and flights are processed in parallel.
+     */
+    FLIGHT_ID,
+    /**
+     * Flights are hashed into {@code sqs.message_group.buckets} groups.
+     */
+    HASH;
+
+    public String groupOf(Flight flight, int buckets) {
+        return switch (this) {
+            case SINGLE -> "1";
+            case FLIGHT_ID -> flight.getId().toString();
+            case HASH -> Integer.toString(Math.floorMod(flight.getId().hashCode(), buckets));
+        };
+    }
+}
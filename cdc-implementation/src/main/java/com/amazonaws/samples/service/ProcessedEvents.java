@@ -0,0 +1,139 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.AwsOutboxCDCSampleApplication;
+import com.amazonaws.samples.model.ProcessedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPage;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idempotency store of the Payment service, backed by DynamoDB behind an in-memory cache.
+ */
+@Service
+public class ProcessedEvents {
+    static final Logger logger = LoggerFactory.getLogger(AwsOutboxCDCSampleApplication.class);
+    private static final int MAX_BATCH_WRITE_ITEMS = 25;
+
+    private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final DynamoDbTable<ProcessedEvent> table;
+    private final RecentlyProcessed recentlyProcessed;
+
+    @Value("${sqs.consumer.idempotency.retention_days}")
+    private int retentionDays;
+
+    @Value("${dynamodb.batch_max_attempts}")
+    private int batchMaxAttempts;
+
+    @Value("${dynamodb.batch_retry_backoff_ms}")
+    private long batchRetryBackoffMs;
+
+    public ProcessedEvents(DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                           @Value("${dynamodb.processed_events_table}") String tableName,
+                           @Value("${sqs.consumer.idempotency.cache_size}") int cacheSize,
+                           @Value("${sqs.consumer.idempotency.cache_ttl_s}") long cacheTtlSeconds) {
+        this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.table = dynamoDbEnhancedClient.table(tableName, TableSchema.fromBean(ProcessedEvent.class));
+        this.recentlyProcessed = new RecentlyProcessed(cacheSize, TimeUnit.SECONDS.toNanos(cacheTtlSeconds));
+    }
+
+    /**
+     * Returns the ids among {@code ids} that were already processed, or throws if some could not be looked up.
+     */
+    public Set<String> findProcessed(Collection<String> ids) {
+        Set<String> processed = new HashSet<>();
+        Set<String> unknown = new LinkedHashSet<>(ids.size());
+        for (String id : ids) {
+            if (recentlyProcessed.contains(id)) {
+                processed.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            ReadBatch.Builder<ProcessedEvent> batch = ReadBatch.builder(ProcessedEvent.class).mappedTableResource(table);
+            unknown.forEach(id -> batch.addGetItem(Key.builder().partitionValue(id).build()));
+            // each page after the first requests the keys left unprocessed by the previous one
+            int attempt = 1;
+            for (BatchGetResultPage page : dynamoDbEnhancedClient.batchGetItem(request -> request.readBatches(batch.build()))) {
+                page.resultsForTable(table).forEach(event -> {
+                    recentlyProcessed.add(event.getId());
+                    processed.add(event.getId());
+                });
+                int unprocessed = page.unprocessedKeysForTable(table).size();
+                if (unprocessed == 0) {
+                    break;
+                }
+                if (attempt == batchMaxAttempts) {
+                    throw new IllegalStateException(unprocessed + " processed event ids could not be read after "
+                            + attempt + " attempts");
+                }
+                backOff(attempt++);
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * Records {@code ids} as processed with batched writes, retrying unprocessed ones. Recording an id again only
+     * pushes back its expiry.
+     */
+    public void recordProcessed(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Instant processedAt = Instant.now();
+        long expiresAt = processedAt.plus(Duration.ofDays(retentionDays)).getEpochSecond();
+        List<String> pending = new ArrayList<>(new LinkedHashSet<>(ids));
+        Set<String> unrecorded = new HashSet<>();
+        for (int from = 0; from < pending.size(); from += MAX_BATCH_WRITE_ITEMS) {
+            List<ProcessedEvent> unprocessed = pending.subList(from, Math.min(from + MAX_BATCH_WRITE_ITEMS, pending.size()))
+                    .stream()
+                    .map(id -> new ProcessedEvent(id, processedAt, expiresAt))
+                    .toList();
+            for (int attempt = 1; !unprocessed.isEmpty(); attempt++) {
+                if (attempt > 1) {
+                    backOff(attempt - 1);
+                }
+                WriteBatch.Builder<ProcessedEvent> batch = WriteBatch.builder(ProcessedEvent.class).mappedTableResource(table);
+                unprocessed.forEach(batch::addPutItem);
+                BatchWriteResult result = dynamoDbEnhancedClient.batchWriteItem(request -> request.writeBatches(batch.build()));
+                unprocessed = result.unprocessedPutItemsForTable(table);
+                if (!unprocessed.isEmpty() && attempt == batchMaxAttempts) {
+                    logger.warn(unprocessed.size() + " processed event ids were not recorded after " + attempt
+                            + " attempts, their events may be processed again if redelivered");
+                    unprocessed.forEach(event -> unrecorded.add(event.getId()));
+                    break;
+                }
+            }
+        }
+        pending.stream().filter(id -> !unrecorded.contains(id)).forEach(recentlyProcessed::add);
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(batchRetryBackoffMs << Math.min(attempt - 1, 10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying processed event ids", e);
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package com.amazonaws.samples.service;
 
-import com.amazonaws.AmazonServiceException;
 import com.amazonaws.samples.AwsOutboxCDCSampleApplication;
 import com.amazonaws.samples.model.Flight;
+import com.amazonaws.samples.model.FlightChange;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 
-import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 import java.util.function.Consumer;
 
 @Service
@@ -21,35 +33,133 @@ public class QueueService {
     static final Logger logger = LoggerFactory.getLogger(AwsOutboxCDCSampleApplication.class);
     private final SqsClient sqsClient;
     private final ObjectMapper objectMapper;
+    private final Timer forwardLatency;
+    private volatile String queueUrl;
     @Value("${sqs.queue_name}")
     private String sqsQueueName;
+    @Value("${sqs.entry_max_attempts}")
+    private int entryMaxAttempts;
+    @Value("${sqs.entry_retry_backoff_ms}")
+    private long entryRetryBackoffMs;
+    @Value("${sqs.message_group.strategy}")
+    private MessageGroupStrategy messageGroupStrategy;
+    @Value("${sqs.message_group.buckets}")
+    private int messageGroupBuckets;
 
-    public QueueService(ObjectMapper objectMapper) {
+    public QueueService(ObjectMapper objectMapper, SqsClient sqsClient, MeterRegistry meterRegistry) {
         this.objectMapper = objectMapper;
-        this.sqsClient = SqsClient.builder()
-                .build();
+        this.sqsClient = sqsClient;
+        this.forwardLatency = Timer.builder("cdc.forward.latency")
+                .description("Time from the DynamoDB change to its flight event being sent to SQS")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Bean
-    public Consumer<Flight> sendToSQS() {
+    public Consumer<List<FlightChange>> sendToSQS() {
         return this::forwardEventsToSQS;
     }
 
-    public void forwardEventsToSQS(Flight flight) {
-        GetQueueUrlRequest getQueueRequest = GetQueueUrlRequest.builder()
-                .queueName(sqsQueueName)
-                .build();
-        String queueUrl = this.sqsClient.getQueueUrl(getQueueRequest).queueUrl();
+    /**
+     * Forwards a batch of records to SQS in order, throwing if some may still be sent so the batch is redelivered.
+     */
+    public void forwardEventsToSQS(List<FlightChange> changes) {
+        Map<String, FlightChange> changesByEntryId = new HashMap<>();
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(changes.size());
+        for (FlightChange change : changes) {
+            if (change == null) {
+                continue;
+            }
+            if (change.eventName() == FlightChange.EventName.REMOVE) {
+                logger.debug("Skipping removal of flight " + change.flight().getId());
+                continue;
+            }
+            try {
+                String id = Integer.toString(entries.size());
+                SendMessageBatchRequestEntry entry = toEntry(id, change);
+                if (SqsBatches.sizeOf(entry) > SqsBatches.MAX_BATCH_BYTES) {
+                    logger.error("Dropping flight event " + change.flight().getId()
+                            + ", it exceeds the SQS message size limit");
+                    continue;
+                }
+                entries.add(entry);
+                changesByEntryId.put(id, change);
+            } catch (JsonProcessingException e) {
+                logger.error("Error serializing flight " + change.flight().getId(), e);
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        String queueUrl = getQueueUrl();
+        List<String> unsent = new ArrayList<>();
+        for (List<SendMessageBatchRequestEntry> chunk : SqsBatches.chunk(entries, SqsBatches.MAX_BATCH_ENTRIES, SqsBatches.MAX_BATCH_BYTES)) {
+            List<SendMessageBatchRequestEntry> pending = chunk;
+            for (int attempt = 1; !pending.isEmpty(); attempt++) {
+                SendMessageBatchResponse response = sqsClient.sendMessageBatch(SendMessageBatchRequest.builder()
+                        .queueUrl(queueUrl)
+                        .entries(pending)
+                        .build());
+                Instant now = Instant.now();
+                response.successful().stream()
+                        .map(successful -> changesByEntryId.get(successful.id()).approximateCreationTime())
+                        .filter(Objects::nonNull)
+                        .forEach(creationTime -> forwardLatency.record(Duration.between(creationTime, now)));
+
+                List<SendMessageBatchRequestEntry> retriable = new ArrayList<>();
+                for (BatchResultErrorEntry failed : response.failed()) {
+                    UUID flightId = changesByEntryId.get(failed.id()).flight().getId();
+                    if (failed.senderFault()) {
+                        // redelivering the batch would not change the outcome, and would stall the shard
+                        logger.error("Dropping flight event " + flightId + " rejected by SQS (" + failed.code()
+                                + "): " + failed.message());
+                    } else if (attempt < entryMaxAttempts) {
+                        pending.stream().filter(entry -> entry.id().equals(failed.id())).forEach(retriable::add);
+                    } else {
+                        logger.error("Flight event " + flightId + " could not be sent to SQS (" + failed.code()
+                                + "): " + failed.message());
+                        unsent.add(failed.id());
+                    }
+                }
+                if (!retriable.isEmpty()) {
+                    backOff(attempt);
+                }
+                pending = retriable;
+            }
+        }
+        if (!unsent.isEmpty()) {
+            throw new IllegalStateException(unsent.size() + " of " + entries.size()
+                    + " flight events could not be sent to SQS");
+        }
+    }
+
+    private void backOff(int attempt) {
         try {
-            SendMessageRequest send_msg_request = SendMessageRequest.builder()
-                    .queueUrl(queueUrl)
-                    .messageBody(objectMapper.writeValueAsString(flight))
-                    .messageGroupId("1")
-                    .messageDeduplicationId(flight.getId().toString())
-                    .build();
-            sqsClient.sendMessage(send_msg_request);
-        } catch (IOException | AmazonServiceException e) {
-            logger.error("Error sending message to SQS", e);
+            Thread.sleep(entryRetryBackoffMs << Math.min(attempt - 1, 10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying flight events", e);
+        }
+    }
+
+    /**
+     * Deduplicates on the stream event id, which identifies the change rather than the flight.
+     */
+    private SendMessageBatchRequestEntry toEntry(String id, FlightChange change) throws JsonProcessingException {
+        Flight flight = change.flight();
+        return SendMessageBatchRequestEntry.builder()
+                .id(id)
+                .messageBody(objectMapper.writeValueAsString(flight))
+                .messageGroupId(messageGroupStrategy.groupOf(flight, messageGroupBuckets))
+                .messageDeduplicationId(change.eventId() != null ? change.eventId() : flight.getId().toString())
+                .build();
+    }
+
+    private String getQueueUrl() {
+        if (queueUrl == null) {
+            queueUrl = sqsClient.getQueueUrl(request -> request.queueName(sqsQueueName)).queueUrl();
         }
+        return queueUrl;
     }
 }
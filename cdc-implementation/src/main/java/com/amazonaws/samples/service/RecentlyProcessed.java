@@ -0,0 +1,50 @@
+package com.amazonaws.samples.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU set of recent event ids with a TTL. Kept identical to the copy in {@code outbox-implementation}.
+ */
+class RecentlyProcessed {
+    private final long ttlNanos;
+    private final Map<String, Long> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    RecentlyProcessed(int maxSize, long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    boolean contains(String id) {
+        lock.lock();
+        try {
+            Long addedAt = entries.get(id);
+            if (addedAt == null) {
+                return false;
+            }
+            if (System.nanoTime() - addedAt > ttlNanos) {
+                entries.remove(id);
+                return false;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void add(String id) {
+        lock.lock();
+        try {
+            entries.put(id, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.amazonaws.samples.configuration;
+
+import com.amazonaws.samples.model.FlightChange;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DynamoDBMessageConverterTest {
+    private static final String ID = "0b7c5b1e-8a3f-4a55-9e1e-6c0b1c2d3e4f";
+    private static final String IMAGE = """
+            {"id": {"S": "%s"}, "departureAirport": {"S": "%s"}, "arrivalAirport": {"S": "London"},
+             "departureDateTime": {"S": "2023-09-01T08:00:00"}, "arrivalDateTime": {"S": "2023-09-01T08:15:00"},
+             "seats": {"N": "180"}}""";
+
+    private final DynamoDBMessageConverter converter = new DynamoDBMessageConverter(new ObjectMapper());
+
+    @Test
+    void readsInsertsFromTheirNewImage() {
+        FlightChange change = convert("""
+                {"eventID": "e1", "eventName": "INSERT", "awsRegion": "us-east-1",
+                 "dynamodb": {"ApproximateCreationDateTime": 1693555200123, "Keys": {"id": {"S": "%s"}},
+                              "NewImage": %s, "SizeBytes": 120}}""".formatted(ID, image("Paris")));
+
+        assertThat(change.eventId()).isEqualTo("e1");
+        assertThat(change.eventName()).isEqualTo(FlightChange.EventName.INSERT);
+        assertThat(change.approximateCreationTime()).isEqualTo(Instant.ofEpochMilli(1693555200123L));
+        assertThat(change.flight().getId()).isEqualTo(UUID.fromString(ID));
+        assertThat(change.flight().getDepartureAirport()).isEqualTo("Paris");
+        assertThat(change.flight().getArrivalAirport()).isEqualTo("London");
+        assertThat(change.flight().getDepartureDateTime()).isEqualTo(LocalDateTime.of(2023, 9, 1, 8, 0));
+        assertThat(change.flight().getArrivalDateTime()).isEqualTo(LocalDateTime.of(2023, 9, 1, 8, 15));
+    }
+
+    @Test
+    void readsModificationsFromTheirNewImage() {
+        FlightChange change = convert("""
+                {"eventName": "MODIFY",
+                 "dynamodb": {"OldImage": %s, "NewImage": %s}}""".formatted(image("Paris"), image("Lyon")));
+
+        assertThat(change.eventName()).isEqualTo(FlightChange.EventName.MODIFY);
+        assertThat(change.flight().getDepartureAirport()).isEqualTo("Lyon");
+    }
+
+    @Test
+    void readsRemovalsFromTheirOldImage() {
+        FlightChange change = convert("""
+                {"eventName": "REMOVE",
+                 "dynamodb": {"Keys": {"id": {"S": "%s"}}, "OldImage": %s}}""".formatted(ID, image("Paris")));
+
+        assertThat(change.eventName()).isEqualTo(FlightChange.EventName.REMOVE);
+        assertThat(change.flight().getDepartureAirport()).isEqualTo("Paris");
+    }
+
+    @Test
+    void readsRemovalsWithoutImageFromTheirKeys() {
+        FlightChange change = convert("""
+                {"eventName": "REMOVE", "dynamodb": {"Keys": {"id": {"S": "%s"}}}}""".formatted(ID));
+
+        assertThat(change.flight().getId()).isEqualTo(UUID.fromString(ID));
+        assertThat(change.flight().getDepartureAirport()).isNull();
+        assertThat(change.approximateCreationTime()).isNull();
+    }
+
+    @Test
+    void dropsRecordsWithoutFlight() {
+        assertThat(convert("""
+                {"eventName": "INSERT", "dynamodb": {}}""")).isNull();
+    }
+
+    private FlightChange convert(String record) {
+        return (FlightChange) converter.fromMessage(MessageBuilder.withPayload(record.getBytes(StandardCharsets.UTF_8))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/ddb")
+                .build(), FlightChange.class);
+    }
+
+    private static String image(String departureAirport) {
+        return IMAGE.formatted(ID, departureAirport);
+    }
+}
@@ -0,0 +1,80 @@
+package com.amazonaws.samples.controller;
+
+import com.amazonaws.samples.configuration.ThreadMode;
+import com.amazonaws.samples.model.Flight;
+import com.amazonaws.samples.service.FlightCache;
+import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FlightControllerTest {
+    private final DynamoDbTemplate dynamoDbTemplate = mock(DynamoDbTemplate.class);
+    private final FlightController controller = new FlightController(dynamoDbTemplate,
+            Jackson2ObjectMapperBuilder.json().build(),
+            new SimpleAsyncTaskExecutor(ThreadMode.PLATFORM.threadFactory("flight-scan-")), mock(FlightCache.class), 2);
+
+    @Test
+    void streamsTheFlightsOfEverySegment() throws Exception {
+        Flight first = flight();
+        Flight second = flight();
+        scanSegment(0, List.of(Page.create(List.of(first))).iterator());
+        scanSegment(1, List.of(Page.create(List.of(second))).iterator());
+
+        String body = write(controller.getAllFlights().getBody());
+
+        assertThat(body).startsWith("[").endsWith("]")
+                .contains(first.getId().toString(), second.getId().toString());
+    }
+
+    @Test
+    void stopsTheOtherSegmentsAndLeavesTheArrayOpenWhenASegmentFails() {
+        scanSegment(0, Stream.<Page<Flight>>generate(() -> {
+            throw new IllegalStateException("Scan failed");
+        }).iterator());
+        scanSegment(1, Stream.generate(() -> Page.create(List.of(flight()))).iterator());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        assertThatIllegalStateException()
+                .isThrownBy(() -> controller.getAllFlights().getBody().writeTo(outputStream))
+                .withMessageContaining("Scan failed");
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).doesNotEndWith("]");
+    }
+
+    private void scanSegment(int segment, Iterator<Page<Flight>> pages) {
+        when(dynamoDbTemplate.scan(
+                argThat((ScanEnhancedRequest request) -> request != null && request.segment() == segment),
+                eq(Flight.class))).thenReturn(PageIterable.create(() -> pages));
+    }
+
+    private static String write(StreamingResponseBody body) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Flight flight() {
+        Flight flight = new Flight(UUID.randomUUID());
+        flight.setDepartureAirport("Paris");
+        flight.setArrivalAirport("London");
+        return flight;
+    }
+}
@@ -0,0 +1,44 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.Flight;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageGroupStrategyTest {
+
+    @Test
+    void singlePutsEveryFlightInOneGroup() {
+        assertThat(groups(MessageGroupStrategy.SINGLE, 100, 64)).containsExactly("1");
+    }
+
+    @Test
+    void flightIdGivesEachFlightItsOwnGroup() {
+        Flight flight = new Flight(UUID.randomUUID());
+
+        assertThat(MessageGroupStrategy.FLIGHT_ID.groupOf(flight, 64)).isEqualTo(flight.getId().toString());
+        assertThat(groups(MessageGroupStrategy.FLIGHT_ID, 100, 64)).hasSize(100);
+    }
+
+    @Test
+    void hashKeepsAFlightInOneOfTheBuckets() {
+        Flight flight = new Flight(UUID.randomUUID());
+        String group = MessageGroupStrategy.HASH.groupOf(flight, 8);
+
+        assertThat(MessageGroupStrategy.HASH.groupOf(new Flight(flight.getId()), 8)).isEqualTo(group);
+        assertThat(groups(MessageGroupStrategy.HASH, 1000, 8))
+                .allSatisfy(bucket -> assertThat(Integer.parseInt(bucket)).isBetween(0, 7))
+                .hasSizeGreaterThan(1);
+    }
+
+    private static Set<String> groups(MessageGroupStrategy strategy, int flights, int buckets) {
+        return IntStream.range(0, flights)
+                .mapToObj(i -> strategy.groupOf(new Flight(UUID.randomUUID()), buckets))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,135 @@
+package com.amazonaws.samples.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import software.amazon.awssdk.services.dynamodb.paginators.BatchGetItemIterable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessedEventsTest {
+    private static final String TABLE = "processed_events";
+
+    private final DynamoDbClient dynamoDbClient = mock(DynamoDbClient.class);
+    private ProcessedEvents processedEvents;
+
+    @BeforeEach
+    void setUp() {
+        processedEvents = new ProcessedEvents(DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build(),
+                TABLE, 100, 60);
+        ReflectionTestUtils.setField(processedEvents, "retentionDays", 7);
+        ReflectionTestUtils.setField(processedEvents, "batchMaxAttempts", 3);
+        ReflectionTestUtils.setField(processedEvents, "batchRetryBackoffMs", 1L);
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+        when(dynamoDbClient.batchGetItemPaginator(any(BatchGetItemRequest.class)))
+                .thenAnswer(invocation -> new BatchGetItemIterable(dynamoDbClient, invocation.getArgument(0)));
+    }
+
+    @Test
+    void recordsIdsInBatchesOfTwentyFiveWithTheirExpiry() {
+        List<String> ids = IntStream.range(0, 30).mapToObj(String::valueOf).toList();
+
+        processedEvents.recordProcessed(ids);
+
+        ArgumentCaptor<BatchWriteItemRequest> requests = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(2)).batchWriteItem(requests.capture());
+        assertThat(requests.getAllValues()).extracting(request -> request.requestItems().get(TABLE).size())
+                .containsExactly(25, 5);
+        WriteRequest first = requests.getAllValues().get(0).requestItems().get(TABLE).get(0);
+        assertThat(first.putRequest().item().get("id").s()).isEqualTo("0");
+        assertThat(Long.parseLong(first.putRequest().item().get("expiresAt").n()))
+                .isCloseTo(Instant.now().plus(Duration.ofDays(7)).getEpochSecond(), within(60L));
+    }
+
+    @Test
+    void findsTheIdsStoredInDynamoDb() {
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class))).thenReturn(BatchGetItemResponse.builder()
+                .responses(Map.of(TABLE, List.of(Map.of("id", AttributeValue.fromS("2")))))
+                .build());
+
+        assertThat(processedEvents.findProcessed(List.of("1", "2"))).containsExactly("2");
+    }
+
+    @Test
+    void readsTheKeysDynamoDbLeftUnprocessedAgain() {
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(BatchGetItemResponse.builder()
+                        .responses(Map.of(TABLE, List.of(Map.of("id", AttributeValue.fromS("1")))))
+                        .unprocessedKeys(Map.of(TABLE, KeysAndAttributes.builder()
+                                .keys(Map.of("id", AttributeValue.fromS("2")))
+                                .build()))
+                        .build())
+                .thenReturn(BatchGetItemResponse.builder()
+                        .responses(Map.of(TABLE, List.of(Map.of("id", AttributeValue.fromS("2")))))
+                        .build());
+
+        assertThat(processedEvents.findProcessed(List.of("1", "2"))).containsExactlyInAnyOrder("1", "2");
+    }
+
+    @Test
+    void failsWhenKeysStayUnprocessed() {
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class))).thenReturn(BatchGetItemResponse.builder()
+                .responses(Map.of(TABLE, List.of()))
+                .unprocessedKeys(Map.of(TABLE, KeysAndAttributes.builder()
+                        .keys(Map.of("id", AttributeValue.fromS("1")))
+                        .build()))
+                .build());
+
+        assertThatIllegalStateException().isThrownBy(() -> processedEvents.findProcessed(List.of("1")));
+        verify(dynamoDbClient, times(3)).batchGetItem(any(BatchGetItemRequest.class));
+    }
+
+    @Test
+    void retriesUnprocessedWritesAndCachesOnlyTheIdsWritten() {
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(BatchWriteItemResponse.builder()
+                .unprocessedItems(Map.of(TABLE, List.of(WriteRequest.builder()
+                        .putRequest(PutRequest.builder().item(Map.of("id", AttributeValue.fromS("2"))).build())
+                        .build())))
+                .build());
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(BatchGetItemResponse.builder().responses(Map.of(TABLE, List.of())).build());
+
+        processedEvents.recordProcessed(List.of("1", "2"));
+
+        verify(dynamoDbClient, times(3)).batchWriteItem(any(BatchWriteItemRequest.class));
+        assertThat(processedEvents.findProcessed(List.of("1", "2"))).containsExactly("1");
+        ArgumentCaptor<BatchGetItemRequest> request = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(dynamoDbClient).batchGetItem(request.capture());
+        assertThat(request.getValue().requestItems().get(TABLE).keys())
+                .containsExactly(Map.of("id", AttributeValue.fromS("2")));
+    }
+
+    @Test
+    void recentlyRecordedIdsAreFoundWithoutDynamoDb() {
+        processedEvents.recordProcessed(List.of("1"));
+
+        assertThat(processedEvents.findProcessed(List.of("1"))).containsExactly("1");
+        verify(dynamoDbClient, never()).batchGetItem(any(BatchGetItemRequest.class));
+    }
+}
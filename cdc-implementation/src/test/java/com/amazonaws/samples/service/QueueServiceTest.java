@@ -0,0 +1,118 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.Flight;
+import com.amazonaws.samples.model.FlightChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueueServiceTest {
+    private static final long BACKOFF_MS = 50;
+
+    private final SqsClient sqsClient = mock(SqsClient.class);
+    private QueueService queueService;
+
+    @BeforeEach
+    void setUp() {
+        queueService = new QueueService(Jackson2ObjectMapperBuilder.json().build(), sqsClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(queueService, "sqsQueueName", "flights");
+        ReflectionTestUtils.setField(queueService, "entryMaxAttempts", 3);
+        ReflectionTestUtils.setField(queueService, "entryRetryBackoffMs", BACKOFF_MS);
+        ReflectionTestUtils.setField(queueService, "messageGroupStrategy", MessageGroupStrategy.FLIGHT_ID);
+        when(sqsClient.getQueueUrl(any(Consumer.class)))
+                .thenReturn(GetQueueUrlResponse.builder().queueUrl("https://sqs/flights").build());
+    }
+
+    @Test
+    void failedEntriesAreSentAgainAfterABackoff() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(failed("0"), succeeded("0"));
+
+        long start = System.nanoTime();
+        queueService.forwardEventsToSQS(List.of(change()));
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(BACKOFF_MS * 1_000_000);
+        verify(sqsClient, times(2)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    void theBackoffDoublesWithEachAttempt() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(failed("0"), failed("0"), failed("0"));
+
+        long start = System.nanoTime();
+        assertThatIllegalStateException().isThrownBy(() -> queueService.forwardEventsToSQS(List.of(change())));
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(3 * BACKOFF_MS * 1_000_000);
+        verify(sqsClient, times(3)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    void entriesRejectedBySqsAreDroppedWithoutFailingTheBatch() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder()
+                        .failed(BatchResultErrorEntry.builder().id("0").senderFault(true).code("InvalidMessageContents")
+                                .build())
+                        .successful(SendMessageBatchResultEntry.builder().id("1").build())
+                        .build());
+
+        queueService.forwardEventsToSQS(List.of(change(), change()));
+
+        verify(sqsClient, times(1)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    void entriesOverTheSizeLimitAreDroppedBeforeSending() {
+        FlightChange oversized = change();
+        oversized.flight().setDepartureAirport("x".repeat(SqsBatches.MAX_BATCH_BYTES));
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(succeeded("0"));
+
+        queueService.forwardEventsToSQS(List.of(oversized, change()));
+
+        ArgumentCaptor<SendMessageBatchRequest> request = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(request.capture());
+        assertThat(request.getValue().entries()).extracting(SendMessageBatchRequestEntry::id).containsExactly("0");
+    }
+
+    private static FlightChange change() {
+        Flight flight = new Flight(UUID.randomUUID());
+        flight.setDepartureAirport("Paris");
+        flight.setArrivalAirport("London");
+        return new FlightChange("e1", FlightChange.EventName.INSERT, flight, Instant.now());
+    }
+
+    private static SendMessageBatchResponse failed(String id) {
+        return SendMessageBatchResponse.builder()
+                .failed(BatchResultErrorEntry.builder().id(id).senderFault(false).code("ServiceUnavailable").build())
+                .build();
+    }
+
+    private static SendMessageBatchResponse succeeded(String id) {
+        return SendMessageBatchResponse.builder()
+                .successful(SendMessageBatchResultEntry.builder().id(id).build())
+                .build();
+    }
+}
@@ -65,6 +65,16 @@ export class CdcStack extends cdk.Stack {
             },
             deletionProtection: false
         });
+        //Ids of the flight events processed by the Payment service
+        const processedEventTable = new dynamodb.Table(this, 'processed_event', {
+            tableName: 'processed_event',
+            partitionKey: {
+                name: 'id',
+                type: dynamodb.AttributeType.STRING,
+            },
+            timeToLiveAttribute: 'expiresAt',
+            deletionProtection: false
+        });
         const dynamoDBPolicy = new iam.Policy(this, 'dynamoDBPolicy', {
             statements: [new iam.PolicyStatement({
                 actions: [
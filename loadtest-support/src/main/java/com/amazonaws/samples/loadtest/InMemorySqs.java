@@ -0,0 +1,241 @@
+package com.amazonaws.samples.loadtest;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process FIFO SQS queue implementing the operations the applications use.
+ */
+public class InMemorySqs {
+    private static final int MAX_BATCH_ENTRIES = 10;
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+
+    public interface Listener {
+        void onSent(Message message, long nanoTime);
+
+        void onDeleted(Message message, long nanoTime);
+    }
+
+    private final LinkedList<Message> pending = new LinkedList<>();
+    private final Map<String, Message> inFlight = new HashMap<>();
+    private final Map<String, Integer> inFlightGroups = new HashMap<>();
+    private volatile Listener listener;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public SqsClient syncClient() {
+        return new SyncClient();
+    }
+
+    public SqsAsyncClient asyncClient() {
+        return new AsyncClient();
+    }
+
+    private static String groupOf(Message message) {
+        return message.attributes().getOrDefault(MessageSystemAttributeName.MESSAGE_GROUP_ID, message.messageId());
+    }
+
+    private Message enqueue(String body, String groupId, String deduplicationId,
+                            Map<String, MessageAttributeValue> messageAttributes) {
+        String messageId = UUID.randomUUID().toString();
+        Message message = Message.builder()
+                .messageId(messageId)
+                .body(body)
+                .attributes(Map.of(MessageSystemAttributeName.MESSAGE_GROUP_ID, groupId == null ? "" : groupId,
+                        MessageSystemAttributeName.MESSAGE_DEDUPLICATION_ID, deduplicationId == null ? messageId : deduplicationId))
+                .messageAttributes(messageAttributes)
+                .build();
+        synchronized (this) {
+            pending.add(message);
+            notifyAll();
+        }
+        Listener current = listener;
+        if (current != null) {
+            current.onSent(message, System.nanoTime());
+        }
+        return message;
+    }
+
+    private synchronized List<Message> receive(int maxMessages, int waitTimeSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitTimeSeconds);
+        while (true) {
+            List<Message> received = new ArrayList<>();
+            Set<String> receivedGroups = new HashSet<>();
+            for (Iterator<Message> it = pending.iterator(); it.hasNext() && received.size() < maxMessages; ) {
+                Message message = it.next();
+                String group = groupOf(message);
+                if (inFlightGroups.containsKey(group) && !receivedGroups.contains(group)) {
+                    continue;
+                }
+                it.remove();
+                String receiptHandle = UUID.randomUUID().toString();
+                inFlight.put(receiptHandle, message);
+                inFlightGroups.merge(group, 1, Integer::sum);
+                receivedGroups.add(group);
+                received.add(message.toBuilder().receiptHandle(receiptHandle).build());
+            }
+            long remaining = deadline - System.nanoTime();
+            if (!received.isEmpty() || remaining <= 0) {
+                return received;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+
+    private boolean delete(String receiptHandle) {
+        Message message;
+        synchronized (this) {
+            message = inFlight.remove(receiptHandle);
+            if (message == null) {
+                return false;
+            }
+            inFlightGroups.computeIfPresent(groupOf(message), (group, count) -> count == 1 ? null : count - 1);
+            notifyAll();
+        }
+        Listener current = listener;
+        if (current != null) {
+            current.onDeleted(message, System.nanoTime());
+        }
+        return true;
+    }
+
+    private SendMessageBatchResponse sendBatch(List<SendMessageBatchRequestEntry> entries) {
+        if (entries.size() > MAX_BATCH_ENTRIES) {
+            throw TooManyEntriesInBatchRequestException.builder().message(entries.size() + " entries").build();
+        }
+        int size = 0;
+        for (SendMessageBatchRequestEntry entry : entries) {
+            size += sizeOf(entry.messageBody(), entry.messageAttributes());
+        }
+        if (size > MAX_BATCH_BYTES) {
+            throw BatchRequestTooLongException.builder().message(size + " bytes").build();
+        }
+        List<SendMessageBatchResultEntry> successful = new ArrayList<>(entries.size());
+        for (SendMessageBatchRequestEntry entry : entries) {
+            Message message = enqueue(entry.messageBody(), entry.messageGroupId(), entry.messageDeduplicationId(),
+                    entry.messageAttributes());
+            successful.add(SendMessageBatchResultEntry.builder().id(entry.id()).messageId(message.messageId()).build());
+        }
+        return SendMessageBatchResponse.builder().successful(successful).failed(List.of()).build();
+    }
+
+    private static int sizeOf(String body, Map<String, MessageAttributeValue> messageAttributes) {
+        int size = body.getBytes(StandardCharsets.UTF_8).length;
+        for (Map.Entry<String, MessageAttributeValue> attribute : messageAttributes.entrySet()) {
+            MessageAttributeValue value = attribute.getValue();
+            size += attribute.getKey().length() + value.dataType().length();
+            SdkBytes binary = value.binaryValue();
+            size += binary != null ? binary.asByteArrayUnsafe().length : value.stringValue().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return size;
+    }
+
+    private static GetQueueUrlResponse queueUrl(GetQueueUrlRequest request) {
+        return GetQueueUrlResponse.builder().queueUrl("http://localhost/000000000000/" + request.queueName()).build();
+    }
+
+    private class SyncClient implements SqsClient {
+
+        @Override
+        public GetQueueUrlResponse getQueueUrl(GetQueueUrlRequest request) {
+            return queueUrl(request);
+        }
+
+        @Override
+        public SendMessageResponse sendMessage(SendMessageRequest request) {
+            Message message = enqueue(request.messageBody(), request.messageGroupId(), request.messageDeduplicationId(),
+                    request.messageAttributes());
+            return SendMessageResponse.builder().messageId(message.messageId()).build();
+        }
+
+        @Override
+        public SendMessageBatchResponse sendMessageBatch(SendMessageBatchRequest request) {
+            return sendBatch(request.entries());
+        }
+
+        @Override
+        public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest request) {
+            int maxMessages = request.maxNumberOfMessages() == null ? 1 : request.maxNumberOfMessages();
+            int waitTimeSeconds = request.waitTimeSeconds() == null ? 0 : request.waitTimeSeconds();
+            try {
+                return ReceiveMessageResponse.builder().messages(receive(maxMessages, waitTimeSeconds)).build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ReceiveMessageResponse.builder().messages(List.of()).build();
+            }
+        }
+
+        @Override
+        public DeleteMessageResponse deleteMessage(DeleteMessageRequest request) {
+            delete(request.receiptHandle());
+            return DeleteMessageResponse.builder().build();
+        }
+
+        @Override
+        public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest request) {
+            List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+            List<BatchResultErrorEntry> failed = new ArrayList<>();
+            for (DeleteMessageBatchRequestEntry entry : request.entries()) {
+                if (delete(entry.receiptHandle())) {
+                    successful.add(DeleteMessageBatchResultEntry.builder().id(entry.id()).build());
+                } else {
+                    failed.add(BatchResultErrorEntry.builder().id(entry.id()).code("ReceiptHandleIsInvalid")
+                            .senderFault(true).build());
+                }
+            }
+            return DeleteMessageBatchResponse.builder().successful(successful).failed(failed).build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private class AsyncClient implements SqsAsyncClient {
+
+        @Override
+        public CompletableFuture<GetQueueUrlResponse> getQueueUrl(GetQueueUrlRequest request) {
+            return CompletableFuture.completedFuture(queueUrl(request));
+        }
+
+        @Override
+        public CompletableFuture<SendMessageBatchResponse> sendMessageBatch(SendMessageBatchRequest request) {
+            try {
+                return CompletableFuture.completedFuture(sendBatch(request.entries()));
+            } catch (SqsException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.amazonaws.samples.loadtest;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency percentiles and throughput of a load test run.
+ */
+public class LoadTestReport {
+    private final StringBuilder report = new StringBuilder();
+
+    public LoadTestReport(String title, int requests, int concurrency) {
+        report.append(String.format(Locale.ROOT, "%n=== %s: %d bookings, %d concurrent clients ===%n",
+                title, requests, concurrency));
+    }
+
+    /**
+     * Adds the p50/p99/max of {@code to - from}; negative samples count as zero.
+     */
+    public LoadTestReport latency(String label, Map<String, Long> from, Map<String, Long> to) {
+        long[] samples = from.entrySet().stream()
+                .filter(entry -> to.containsKey(entry.getKey()))
+                .mapToLong(entry -> Math.max(0, to.get(entry.getKey()) - entry.getValue()))
+                .sorted()
+                .toArray();
+        if (samples.length == 0) {
+            report.append(String.format(Locale.ROOT, "%-28s no samples%n", label));
+            return this;
+        }
+        report.append(String.format(Locale.ROOT, "%-28s p50 %8.2f ms   p99 %8.2f ms   max %8.2f ms   (%d samples)%n",
+                label, millis(percentile(samples, 0.50)), millis(percentile(samples, 0.99)),
+                millis(samples[samples.length - 1]), samples.length));
+        return this;
+    }
+
+    /**
+     * Adds the number of events per second between the first {@code start} and the last {@code end} timestamp.
+     */
+    public LoadTestReport throughput(String label, Collection<Long> start, Collection<Long> end) {
+        if (start.isEmpty() || end.isEmpty()) {
+            return this;
+        }
+        long elapsed = end.stream().mapToLong(Long::longValue).max().getAsLong()
+                - start.stream().mapToLong(Long::longValue).min().getAsLong();
+        report.append(String.format(Locale.ROOT, "%-28s %8.1f events/s%n",
+                label, end.size() / (elapsed / (double) TimeUnit.SECONDS.toNanos(1))));
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return report.toString();
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.amazonaws.samples.benchmark;
+
+import com.amazonaws.samples.model.Flight;
+import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.service.OutboxBatches;
+import com.amazonaws.samples.service.PayloadCodec;
+import com.amazonaws.samples.service.PayloadFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and decoding a booking's outbox payload in each format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutboxPayloadBenchmark {
+    @Param({"JSON", "SMILE", "CBOR"})
+    private PayloadFormat format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private PayloadCodec payloadCodec;
+    private Flight flight;
+    private PayloadCodec.EncodedPayload encoded;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        payloadCodec = new PayloadCodec(objectMapper, format, gzip);
+        flight = new Flight();
+        flight.setId(42L);
+        flight.setDepartureAirport("Paris");
+        flight.setArrivalAirport("London");
+        flight.setDepartureDateTime(new Date(1693555200000L));
+        flight.setArrivalDateTime(new Date(1693556100000L));
+        encoded = payloadCodec.encode(flight);
+    }
+
+    @Benchmark
+    public PayloadCodec.EncodedPayload encodePayload(MessageSize messageSize) {
+        PayloadCodec.EncodedPayload payload = payloadCodec.encode(flight);
+        messageSize.messageBytes = messageSize.messageBytes == 0 ? messageBytes(payload) : messageSize.messageBytes;
+        return payload;
+    }
+
+    @Benchmark
+    public JsonNode decodePayload() {
+        return payloadCodec.decode(encoded.data(), encoded.contentType(), encoded.contentEncoding());
+    }
+
+    private static long messageBytes(PayloadCodec.EncodedPayload payload) {
+        FlightOutbox event = new FlightOutbox("42", FlightOutbox.EventType.FLIGHT_BOOKED, payload.data(),
+                payload.contentType(), payload.contentEncoding());
+        event.setId(1L);
+        return OutboxBatches.sizeOf(OutboxBatches.toEntry(event));
+    }
+
+    /**
+     * Size of the SQS message of an encoded booking, as counted against the {@code SendMessageBatch} limit.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MessageSize {
+        public long messageBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            messageBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.amazonaws.samples.benchmark;
+
+import com.amazonaws.samples.model.Flight;
+import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.service.OutboxBatches;
+import com.amazonaws.samples.service.PayloadCodec;
+import com.amazonaws.samples.service.PayloadFormat;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a claimed outbox page into {@code SendMessageBatch} entries and chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendMessageBatchBenchmark {
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private List<FlightOutbox> page;
+    private List<SendMessageBatchRequestEntry> entries;
+
+    @Setup
+    public void setUp() {
+        PayloadCodec payloadCodec = new PayloadCodec(Jackson2ObjectMapperBuilder.json().build(), PayloadFormat.JSON, false);
+        page = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            Flight flight = new Flight();
+            flight.setId(id);
+            flight.setDepartureAirport("Paris");
+            flight.setArrivalAirport("London");
+            flight.setDepartureDateTime(new Date(1693555200000L));
+            flight.setArrivalDateTime(new Date(1693556100000L));
+            PayloadCodec.EncodedPayload payload = payloadCodec.encode(flight);
+            FlightOutbox event = new FlightOutbox(Long.toString(id), FlightOutbox.EventType.FLIGHT_BOOKED,
+                    payload.data(), payload.contentType(), payload.contentEncoding());
+            event.setId(id);
+            page.add(event);
+        }
+        entries = buildEntries();
+    }
+
+    @Benchmark
+    public List<SendMessageBatchRequestEntry> buildEntries() {
+        List<SendMessageBatchRequestEntry> built = new ArrayList<>(page.size());
+        for (FlightOutbox event : page) {
+            built.add(OutboxBatches.toEntry(event));
+        }
+        return built;
+    }
+
+    @Benchmark
+    public List<List<SendMessageBatchRequestEntry>> chunkEntries() {
+        return OutboxBatches.chunk(entries, OutboxBatches.MAX_BATCH_ENTRIES, OutboxBatches.MAX_BATCH_BYTES);
+    }
+}
@@ -0,0 +1,159 @@
+package com.amazonaws.samples.loadtest;
+
+import com.amazonaws.samples.service.ClaimCheck;
+import com.amazonaws.samples.service.PayloadCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures commit-to-SQS and commit-to-payment latency of bookings against an embedded Postgres.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sqs.queue_name=flightQueue.fifo"
+})
+class OutboxLoadTest {
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 2000);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final long TIMEOUT_S = Long.getLong("loadtest.timeout_s", 120);
+    private static final String BOOKING = """
+            {"departureAirport":"Paris","arrivalAirport":"London",
+            "departureDateTime":"2023-09-01T08:00:00.000Z","arrivalDateTime":"2023-09-01T08:15:00.000Z"}""";
+
+    private static EmbeddedPostgres postgres;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private InMemorySqs sqs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PayloadCodec payloadCodec;
+
+    @Autowired
+    private ClaimCheck claimCheck;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.builder().setServerConfig("wal_level", "logical").start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void sustainedBookings() throws Exception {
+        Map<String, Long> committed = new ConcurrentHashMap<>();
+        Map<String, Long> published = new ConcurrentHashMap<>();
+        Map<String, Long> processed = new ConcurrentHashMap<>();
+        sqs.setListener(new InMemorySqs.Listener() {
+            @Override
+            public void onSent(Message message, long nanoTime) {
+                published.put(payloadCodec.decode(claimCheck.resolve(message)).get("id").asText(), nanoTime);
+            }
+
+            @Override
+            public void onDeleted(Message message, long nanoTime) {
+                processed.put(payloadCodec.decode(claimCheck.resolve(message)).get("id").asText(), nanoTime);
+            }
+        });
+
+        URI bookings = URI.create("http://localhost:" + port + "/api/flights");
+        HttpClient httpClient = HttpClient.newHttpClient();
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        List<Future<?>> responses = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(clients.submit(() -> {
+                HttpRequest request = HttpRequest.newBuilder(bookings)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(BOOKING))
+                        .build();
+                String flight = httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+                committed.put(flightId(flight), System.nanoTime());
+                return null;
+            }));
+        }
+        for (Future<?> response : responses) {
+            response.get();
+        }
+        clients.shutdown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_S);
+        while (processed.size() < REQUESTS && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+
+        System.out.println(new LoadTestReport("Outbox implementation", REQUESTS, CONCURRENCY)
+                .latency("commit-to-SQS", committed, published)
+                .latency("commit-to-payment", committed, processed)
+                .throughput("bookings", committed.values(), committed.values())
+                .throughput("end-to-end", committed.values(), processed.values()));
+        assertEquals(REQUESTS, processed.size(), "bookings processed by the Payment service");
+    }
+
+    private String flightId(String json) {
+        try {
+            return objectMapper.readTree(json).get("id").asText();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected flight payload " + json, e);
+        }
+    }
+
+    @TestConfiguration
+    static class LocalStandIns {
+
+        @Bean
+        InMemorySqs inMemorySqs() {
+            return new InMemorySqs();
+        }
+
+        @Bean
+        @Primary
+        SqsAsyncClient inMemorySqsAsyncClient(InMemorySqs inMemorySqs) {
+            return inMemorySqs.asyncClient();
+        }
+
+        @Bean
+        @Primary
+        SqsClient inMemorySqsClient(InMemorySqs inMemorySqs) {
+            return inMemorySqs.syncClient();
+        }
+    }
+}
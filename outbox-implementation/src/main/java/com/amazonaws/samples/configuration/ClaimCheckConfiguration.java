@@ -0,0 +1,35 @@
+package com.amazonaws.samples.configuration;
+
+import com.amazonaws.samples.service.BlobStore;
+import com.amazonaws.samples.service.FileSystemBlobStore;
+import com.amazonaws.samples.service.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.file.Path;
+
+@Configuration
+public class ClaimCheckConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "outbox.claim_check.store", havingValue = "filesystem")
+    public BlobStore fileSystemBlobStore(@Value("${outbox.claim_check.directory}") Path directory) {
+        return new FileSystemBlobStore(directory);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "outbox.claim_check.store", havingValue = "s3")
+    public S3Client s3Client() {
+        return S3Client.builder()
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "outbox.claim_check.store", havingValue = "s3")
+    public BlobStore s3BlobStore(S3Client s3Client, @Value("${outbox.claim_check.bucket}") String bucket) {
+        return new S3BlobStore(s3Client, bucket);
+    }
+}
@@ -0,0 +1,32 @@
+package com.amazonaws.samples.configuration;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.task.TaskSchedulerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+@Configuration
+public class ExecutionConfiguration {
+
+    /**
+     * Runs {@code @Scheduled} tasks on {@code spring.task.scheduling.pool.size} threads of {@code execution.threads}.
+     */
+    @Bean
+    public TaskSchedulerCustomizer schedulerThreads(@Value("${execution.threads}") ThreadMode threadMode) {
+        return scheduler -> scheduler.setThreadFactory(threadMode.threadFactory("scheduling-"));
+    }
+
+    /**
+     * Handles each request on a virtual thread of its own instead of Tomcat's pool.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "execution.threads", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequests() {
+        return protocolHandler ->
+                protocolHandler.setExecutor(new SimpleAsyncTaskExecutor(ThreadMode.VIRTUAL.threadFactory("http-")));
+    }
+}
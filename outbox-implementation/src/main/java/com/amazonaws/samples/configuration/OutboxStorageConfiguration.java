@@ -0,0 +1,41 @@
+package com.amazonaws.samples.configuration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Configuration
+public class OutboxStorageConfiguration {
+
+    /**
+     * Creates the partitioned outbox table before Hibernate would create a regular one.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "outbox.storage_mode", havingValue = "partitioned")
+    public DataSourceScriptDatabaseInitializer partitionedOutboxInitializer(DataSource dataSource) {
+        DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+        settings.setSchemaLocations(List.of("classpath:db/partitioned-outbox.sql"));
+        settings.setMode(DatabaseInitializationMode.ALWAYS);
+        return new DataSourceScriptDatabaseInitializer(dataSource, settings);
+    }
+
+    /**
+     * Indexes the regular outbox table once Hibernate has created it; the partitioned script indexes its own.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "outbox.storage_mode", havingValue = "delete", matchIfMissing = true)
+    public InitializingBean outboxIndexes(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        return () -> jdbcTemplate.execute("""
+                CREATE INDEX IF NOT EXISTS flights_outbox_aggregate_seq_idx
+                ON flights_outbox (aggregate_id, sequence_number)""");
+    }
+}
@@ -0,0 +1,27 @@
+package com.amazonaws.samples.configuration;
+
+import com.amazonaws.samples.service.OutboxRoutes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class RelayConfiguration {
+
+    /**
+     * Runs {@code sqs.relay_workers} relay workers per destination lane.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor relayExecutor(@Value("${sqs.relay_workers}") int relayWorkers,
+                                                @Value("${execution.threads}") ThreadMode threadMode,
+                                                OutboxRoutes outboxRoutes) {
+        int poolSize = relayWorkers * outboxRoutes.destinations().size();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadFactory(threadMode.threadFactory("outbox-relay-"));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.amazonaws.samples.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+@Configuration
+public class SqsConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public SqsAsyncClient sqsAsyncClient() {
+        return SqsAsyncClient.builder()
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public SqsClient sqsClient() {
+        return SqsClient.builder()
+                .build();
+    }
+}
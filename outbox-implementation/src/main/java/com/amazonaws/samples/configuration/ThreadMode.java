@@ -0,0 +1,29 @@
+package com.amazonaws.samples.configuration;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Kind of threads set with {@code execution.threads}. Kept identical to the copy in {@code cdc-implementation}.
+ */
+public enum ThreadMode {
+    /**
+     * Platform threads, each backed by an OS thread.
+     */
+    PLATFORM,
+    /**
+     * Virtual threads, unmounted from their carrier thread while they block.
+     */
+    VIRTUAL;
+
+    /**
+     * Creates threads named {@code prefix} followed by a counter.
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        if (this == VIRTUAL) {
+            return Thread.ofVirtual().name(prefix, 0).factory();
+        }
+        return new CustomizableThreadFactory(prefix);
+    }
+}
@@ -1,39 +1,160 @@
 package com.amazonaws.samples.controller;
 
+import com.amazonaws.samples.model.BulkBooking;
 import com.amazonaws.samples.model.Flight;
 import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.model.FlightPage;
 import com.amazonaws.samples.repository.FlightRepository;
 import com.amazonaws.samples.repository.OutboxRepository;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.amazonaws.samples.service.FlightCache;
+import com.amazonaws.samples.service.OutboxNotifier;
+import com.amazonaws.samples.service.PayloadCodec;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api")
 @AllArgsConstructor
 public class FlightController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
     final FlightRepository flightRepository;
     final OutboxRepository outboxRepository;
     final ObjectMapper objectMapper;
+    final OutboxNotifier outboxNotifier;
+    final PayloadCodec payloadCodec;
+    final FlightCache flightCache;
+    final TransactionTemplate transactionTemplate;
+    final EntityManager entityManager;
 
+    /**
+     * Streams all flights as a JSON array without loading the table in memory.
+     */
     @GetMapping("/flights")
-    public List<Flight> getAllFlights() {
-        return flightRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> getAllFlights() {
+        StreamingResponseBody body = outputStream -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Flight> flights = flightRepository.streamAll();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                flights.forEach(flight -> {
+                    try {
+                        generator.writeObject(flight);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    entityManager.detach(flight);
+                });
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Returns the page of flights after the {@code after} cursor.
+     */
+    @GetMapping("/flights/page")
+    public FlightPage getFlights(@RequestParam(defaultValue = "0") long after,
+                                 @RequestParam(defaultValue = "100") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Flight> flights = flightRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.ofSize(pageSize));
+        Long next = flights.size() < pageSize ? null : flights.get(flights.size() - 1).getId();
+        return new FlightPage(flights, next);
+    }
+
+    /**
+     * Returns a flight, from the {@link FlightCache} when it holds it.
+     */
+    @GetMapping("/flights/{id}")
+    public Flight getFlight(@PathVariable long id) {
+        return flightCache.get(id, flightRepository::findById)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight " + id + " not found"));
     }
 
     @PostMapping("/flights")
     @Transactional
     public Flight createFlight(@Valid @RequestBody Flight flight) {
         Flight savedFlight = flightRepository.save(flight);
-        JsonNode flightPayload = objectMapper.convertValue(flight, JsonNode.class);
-        FlightOutbox outboxEvent = new FlightOutbox(flight.getId().toString(), FlightOutbox.EventType.FLIGHT_BOOKED,
-                flightPayload);
-        outboxRepository.save(outboxEvent);
+        outboxRepository.save(flightBooked(savedFlight));
+        outboxNotifier.eventsRecorded(1);
         return savedFlight;
     }
+
+    /**
+     * Books several flights and records their outbox events in a single transaction.
+     */
+    @PostMapping("/flights/bulk")
+    @Transactional
+    public List<Flight> createFlights(@Valid @RequestBody BulkBooking booking) {
+        List<Flight> savedFlights = flightRepository.saveAll(booking.flights());
+        outboxRepository.saveAll(savedFlights.stream().map(this::flightBooked).toList());
+        outboxNotifier.eventsRecorded(savedFlights.size());
+        return savedFlights;
+    }
+
+    /**
+     * Changes the airports and times of a flight, and records a {@code FLIGHT_CHANGED} event with its new state.
+     */
+    @PutMapping("/flights/{id}")
+    @Transactional
+    public Flight changeFlight(@PathVariable long id, @Valid @RequestBody Flight change) {
+        Flight flight = lockFlight(id);
+        flight.setDepartureAirport(change.getDepartureAirport());
+        flight.setArrivalAirport(change.getArrivalAirport());
+        flight.setDepartureDateTime(change.getDepartureDateTime());
+        flight.setArrivalDateTime(change.getArrivalDateTime());
+        outboxRepository.save(flightEvent(flight, FlightOutbox.EventType.FLIGHT_CHANGED));
+        outboxNotifier.eventsRecorded(1);
+        outboxNotifier.flightsChanged(List.of(id));
+        return flight;
+    }
+
+    /**
+     * Cancels a flight: it is deleted, and a {@code FLIGHT_CANCELLED} event is recorded with its last state.
+     */
+    @DeleteMapping("/flights/{id}")
+    @Transactional
+    public Flight cancelFlight(@PathVariable long id) {
+        Flight flight = lockFlight(id);
+        flightRepository.delete(flight);
+        outboxRepository.save(flightEvent(flight, FlightOutbox.EventType.FLIGHT_CANCELLED));
+        outboxNotifier.eventsRecorded(1);
+        outboxNotifier.flightsChanged(List.of(id));
+        return flight;
+    }
+
+    private Flight lockFlight(long id) {
+        return flightRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight " + id + " not found"));
+    }
+
+    private FlightOutbox flightBooked(Flight flight) {
+        return flightEvent(flight, FlightOutbox.EventType.FLIGHT_BOOKED);
+    }
+
+    private FlightOutbox flightEvent(Flight flight, FlightOutbox.EventType eventType) {
+        PayloadCodec.EncodedPayload payload = payloadCodec.encode(flight);
+        return new FlightOutbox(flight.getId().toString(), eventType, payload.data(), payload.contentType(),
+                payload.contentEncoding());
+    }
 }
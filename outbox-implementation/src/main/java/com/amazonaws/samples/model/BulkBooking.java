@@ -0,0 +1,14 @@
+package com.amazonaws.samples.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Flights booked together through {@code POST /api/flights/bulk}.
+ */
+public record BulkBooking(@NotEmpty @Size(max = 1000) List<@Valid @NotNull Flight> flights) {
+}
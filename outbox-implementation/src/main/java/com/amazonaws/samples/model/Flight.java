@@ -18,7 +18,8 @@ import java.util.Date;
 @NoArgsConstructor(force = true)
 public class Flight {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flights_seq")
+    @SequenceGenerator(name = "flights_seq", sequenceName = "flights_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Departure airport cannot be blank")
@@ -1,12 +1,13 @@
 package com.amazonaws.samples.model;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
+import org.hibernate.annotations.ColumnDefault;
+import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import java.time.Instant;
+
 @Entity
 @Table(name = "flightsOutbox")
 @EntityListeners(AuditingEntityListener.class)
@@ -17,19 +18,60 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 public class FlightOutbox {
 
     public enum EventType {
-        FLIGHT_BOOKED
+        FLIGHT_BOOKED,
+        FLIGHT_CHANGED,
+        FLIGHT_CANCELLED
     }
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Assigned by the database on insert; orders the events of an aggregate.
+     */
+    @Column(insertable = false, updatable = false, columnDefinition = "bigserial")
+    private Long sequenceNumber;
+
     private final String aggregateId;
 
     @Enumerated(EnumType.STRING)
     private final EventType eventType;
 
-    @Column(columnDefinition = "json")
-    @JdbcTypeCode(SqlTypes.JSON)
-    private final JsonNode payload;
+    /**
+     * The event, serialized as {@link #contentType} and compressed as {@link #contentEncoding} if set.
+     */
+    @Column(name = "encoded_payload")
+    private final byte[] payload;
+
+    private final String contentType;
+
+    private final String contentEncoding;
+
+    @CreatedDate
+    @Column(updatable = false)
+    private Instant createdAt;
+
+    /**
+     * Only set with {@code outbox.storage_mode=partitioned}.
+     */
+    private Instant publishedAt;
+
+    /**
+     * Number of failed attempts to publish the event, which sets the backoff before the next one.
+     */
+    @ColumnDefault("0")
+    private int attempts;
+
+    /**
+     * Failed attempts caused by the event itself rather than by the whole batch.
+     */
+    @ColumnDefault("0")
+    private int failures;
+
+    /**
+     * When the relay may claim the event again after a failed attempt, or {@code null} if it is due.
+     */
+    private Instant nextAttemptAt;
 }
@@ -0,0 +1,58 @@
+package com.amazonaws.samples.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+/**
+ * An outbox event the relay gave up on, kept so it can be inspected and moved back.
+ */
+@Entity
+@Table(name = "flightsOutboxQuarantine")
+@NoArgsConstructor(force = true)
+@Getter
+public class FlightOutboxQuarantine {
+
+    @Id
+    private final Long id;
+
+    private final String aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    private final FlightOutbox.EventType eventType;
+
+    @Column(name = "encoded_payload")
+    private final byte[] payload;
+
+    private final String contentType;
+
+    private final String contentEncoding;
+
+    private final Instant createdAt;
+
+    private final int attempts;
+
+    @ColumnDefault("0")
+    private final int failures;
+
+    @Column(length = 2000)
+    private final String lastError;
+
+    private final Instant quarantinedAt;
+
+    public FlightOutboxQuarantine(FlightOutbox event, String lastError, Instant quarantinedAt) {
+        this.id = event.getId();
+        this.aggregateId = event.getAggregateId();
+        this.eventType = event.getEventType();
+        this.payload = event.getPayload();
+        this.contentType = event.getContentType();
+        this.contentEncoding = event.getContentEncoding();
+        this.createdAt = event.getCreatedAt();
+        this.attempts = event.getAttempts();
+        this.failures = event.getFailures();
+        this.lastError = lastError == null || lastError.length() <= 2000 ? lastError : lastError.substring(0, 2000);
+        this.quarantinedAt = quarantinedAt;
+    }
+}
@@ -0,0 +1,9 @@
+package com.amazonaws.samples.model;
+
+import java.util.List;
+
+/**
+ * A page of flights; {@code next} is {@code null} on the last page.
+ */
+public record FlightPage(List<Flight> flights, Long next) {
+}
@@ -0,0 +1,27 @@
+package com.amazonaws.samples.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * End LSN of the last transaction the WAL relay fully published from a replication slot.
+ */
+@Entity
+@Table(name = "outboxRelayCheckpoints")
+@RequiredArgsConstructor
+@NoArgsConstructor(force = true)
+@Getter
+public class OutboxRelayCheckpoint {
+
+    @Id
+    private final String slotName;
+
+    /**
+     * In the {@code XXX/XXX} text form of {@code pg_lsn}.
+     */
+    private final String confirmedLsn;
+
+    private final Instant updatedAt;
+}
@@ -0,0 +1,22 @@
+package com.amazonaws.samples.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A flight event the Payment service has processed, identified by its SQS deduplication id.
+ */
+@Entity
+@Table(name = "processedEvents", indexes = @Index(name = "processed_events_processed_at_idx", columnList = "processedAt"))
+@RequiredArgsConstructor
+@NoArgsConstructor(force = true)
+@Getter
+public class ProcessedEvent {
+
+    @Id
+    private final String id;
+
+    private final Instant processedAt;
+}
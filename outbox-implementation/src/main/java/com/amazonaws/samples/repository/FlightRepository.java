@@ -1,10 +1,39 @@
 package com.amazonaws.samples.repository;
 
 import com.amazonaws.samples.model.Flight;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
 public interface FlightRepository extends JpaRepository<Flight, Long> {
 
+    List<Flight> findByIdGreaterThanOrderByIdAsc(long after, Pageable pageable);
+
+    /**
+     * Locks the flight so its events are written in the order of its changes.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Flight f WHERE f.id = :id")
+    Optional<Flight> findByIdForUpdate(@Param("id") long id);
+
+    /**
+     * Streams all flights through a server-side cursor; must run in a transaction.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT f FROM Flight f ORDER BY f.id")
+    Stream<Flight> streamAll();
 }
@@ -0,0 +1,9 @@
+package com.amazonaws.samples.repository;
+
+import com.amazonaws.samples.model.OutboxRelayCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxRelayCheckpointRepository extends JpaRepository<OutboxRelayCheckpoint, String> {
+}
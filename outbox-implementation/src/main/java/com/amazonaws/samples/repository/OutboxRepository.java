@@ -1,15 +1,37 @@
 package com.amazonaws.samples.repository;
 
 import com.amazonaws.samples.model.FlightOutbox;
-import jakarta.persistence.LockModeType;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface OutboxRepository extends JpaRepository<FlightOutbox, Long> {
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    Page<FlightOutbox> findAllByOrderByIdAsc(Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Claims the oldest pending event of each aggregate, skipping rows locked by other workers.
+     */
+    @Query(value = """
+            SELECT o.* FROM flights_outbox o
+            WHERE o.published_at IS NULL
+              AND o.event_type IN (:eventTypes)
+              AND (o.next_attempt_at IS NULL OR o.next_attempt_at <= now())
+              AND NOT EXISTS (SELECT 1 FROM flights_outbox p
+                              WHERE p.aggregate_id = o.aggregate_id AND p.sequence_number < o.sequence_number AND p.published_at IS NULL)
+            ORDER BY o.id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<FlightOutbox> claimBatch(@Param("eventTypes") Collection<String> eventTypes, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FlightOutbox o SET o.publishedAt = :publishedAt WHERE o.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") Instant publishedAt);
+}
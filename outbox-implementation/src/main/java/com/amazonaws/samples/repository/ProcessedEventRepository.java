@@ -0,0 +1,22 @@
+package com.amazonaws.samples.repository;
+
+import com.amazonaws.samples.model.ProcessedEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, String> {
+
+    @Query("SELECT p.id FROM ProcessedEvent p WHERE p.id IN :ids")
+    List<String> findProcessedIds(Collection<String> ids);
+
+    @Modifying
+    @Query("DELETE FROM ProcessedEvent p WHERE p.processedAt < :before")
+    int deleteProcessedBefore(Instant before);
+}
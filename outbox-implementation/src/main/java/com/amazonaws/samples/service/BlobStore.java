@@ -0,0 +1,14 @@
+package com.amazonaws.samples.service;
+
+/**
+ * Storage for payloads too large to travel on the queue (see {@link ClaimCheck}).
+ */
+public interface BlobStore {
+
+    /**
+     * Stores {@code data} under {@code key}, replacing any previous blob with that key.
+     */
+    void put(String key, byte[] data);
+
+    byte[] get(String key);
+}
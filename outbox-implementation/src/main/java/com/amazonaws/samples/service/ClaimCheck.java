@@ -0,0 +1,82 @@
+package com.amazonaws.samples.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Moves the payload of large entries to a {@link BlobStore} and sends only its key.
+ */
+@Component
+public class ClaimCheck {
+    public static final String CLAIM_CHECK_ATTRIBUTE = "claimCheck";
+    private static final String BODY = "true";
+    private static final String KEY_PREFIX = "flights-outbox/";
+
+    private final BlobStore blobStore;
+    private final int thresholdBytes;
+
+    public ClaimCheck(ObjectProvider<BlobStore> blobStore,
+                      @Value("${outbox.claim_check.threshold_bytes}") int thresholdBytes) {
+        if (thresholdBytes >= OutboxBatches.MAX_BATCH_BYTES) {
+            throw new IllegalArgumentException("outbox.claim_check.threshold_bytes must be below the SQS limit of "
+                    + OutboxBatches.MAX_BATCH_BYTES + " bytes, got " + thresholdBytes);
+        }
+        this.blobStore = blobStore.getIfAvailable();
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    /**
+     * Returns {@code entry}, or a copy carrying a claim check if its payload was offloaded.
+     */
+    public SendMessageBatchRequestEntry offload(SendMessageBatchRequestEntry entry) {
+        if (blobStore == null || OutboxBatches.sizeOf(entry) <= thresholdBytes) {
+            return entry;
+        }
+        String key = KEY_PREFIX + entry.id();
+        Map<String, MessageAttributeValue> attributes = new HashMap<>(entry.messageAttributes());
+        MessageAttributeValue payload = attributes.remove(PayloadCodec.PAYLOAD_ATTRIBUTE);
+        if (payload != null) {
+            blobStore.put(key, payload.binaryValue().asByteArrayUnsafe());
+        } else {
+            blobStore.put(key, entry.messageBody().getBytes(StandardCharsets.UTF_8));
+        }
+        attributes.put(CLAIM_CHECK_ATTRIBUTE, MessageAttributeValue.builder().dataType("String")
+                .stringValue(payload != null ? PayloadCodec.PAYLOAD_ATTRIBUTE : BODY).build());
+        return entry.toBuilder()
+                .messageBody(key)
+                .messageAttributes(attributes)
+                .build();
+    }
+
+    /**
+     * Returns {@code message}, or a copy with its payload fetched back from the blob store.
+     */
+    public Message resolve(Message message) {
+        MessageAttributeValue claimCheck = message.messageAttributes().get(CLAIM_CHECK_ATTRIBUTE);
+        if (claimCheck == null) {
+            return message;
+        }
+        if (blobStore == null) {
+            throw new IllegalStateException("Received claim check " + message.body()
+                    + " but no outbox.claim_check.store is configured");
+        }
+        byte[] payload = blobStore.get(message.body());
+        if (!PayloadCodec.PAYLOAD_ATTRIBUTE.equals(claimCheck.stringValue())) {
+            return message.toBuilder().body(new String(payload, StandardCharsets.UTF_8)).build();
+        }
+        Map<String, MessageAttributeValue> attributes = new HashMap<>(message.messageAttributes());
+        attributes.put(PayloadCodec.PAYLOAD_ATTRIBUTE, PayloadCodec.binaryValue(payload));
+        return message.toBuilder()
+                .body(PayloadCodec.BINARY_PAYLOAD_BODY)
+                .messageAttributes(attributes)
+                .build();
+    }
+}
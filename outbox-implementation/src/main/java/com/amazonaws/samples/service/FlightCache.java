@@ -0,0 +1,124 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.Flight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of flights, invalidated on commit on this node and through {@code NOTIFY} on the others.
+ */
+@Service
+@Log4j2
+public class FlightCache {
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final Map<Long, CachedFlight> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long invalidations;
+
+    public FlightCache(@Value("${cache.flights.max_size}") int maxSize,
+                       @Value("${cache.flights.ttl_s}") long ttlSeconds,
+                       @Value("${outbox.notify.enabled}") boolean notifyEnabled, MeterRegistry meterRegistry) {
+        this.enabled = notifyEnabled;
+        if (!enabled) {
+            log.info("Flight cache disabled, it is only invalidated across nodes with outbox.notify.enabled=true");
+        }
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedFlight> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+    }
+
+    /**
+     * Returns the cached flight, or loads it with {@code loader} and caches it.
+     */
+    public Optional<Flight> get(Long id, Function<Long, Optional<Flight>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        long generation;
+        lock.lock();
+        try {
+            CachedFlight cached = entries.get(id);
+            if (cached != null && System.nanoTime() - cached.cachedAt() <= ttlNanos) {
+                hits.increment();
+                return Optional.of(cached.flight());
+            }
+            generation = invalidations;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        Optional<Flight> flight = loader.apply(id);
+        flight.ifPresent(loaded -> put(id, loaded, generation));
+        return flight;
+    }
+
+    @TransactionalEventListener
+    public void onFlightsChanged(FlightsChanged event) {
+        invalidate(event.flightIds());
+    }
+
+    public void invalidate(Collection<Long> ids) {
+        lock.lock();
+        try {
+            invalidations++;
+            ids.forEach(entries::remove);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every entry, when invalidations may have been missed.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            invalidations++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Long id, Flight flight, long generation) {
+        lock.lock();
+        try {
+            if (invalidations == generation) {
+                entries.put(id, new CachedFlight(flight, System.nanoTime()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("flights.cache.lookups")
+                .description("Flight cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CachedFlight(Flight flight, long cachedAt) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.amazonaws.samples.service;
+
+import java.util.List;
+
+/**
+ * Published inside a transaction that changed or deleted flights, so caches can drop them once it commits.
+ */
+public record FlightsChanged(List<Long> flightIds) {
+}
@@ -0,0 +1,96 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.FlightOutbox;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns outbox events into entries and splits them within the SQS {@code SendMessageBatch} limits.
+ */
+public final class OutboxBatches {
+    public static final String EVENT_TYPE_ATTRIBUTE = "eventType";
+    public static final int MAX_BATCH_ENTRIES = 10;
+    public static final int MAX_BATCH_BYTES = 256 * 1024;
+
+    private OutboxBatches() {
+    }
+
+    public static SendMessageBatchRequestEntry toEntry(FlightOutbox entity) {
+        String id = entity.getId().toString();
+        Map<String, MessageAttributeValue> attributes =
+                PayloadCodec.messageAttributes(entity.getPayload(), entity.getContentType(), entity.getContentEncoding());
+        attributes.put(EVENT_TYPE_ATTRIBUTE, MessageAttributeValue.builder()
+                .dataType("String")
+                .stringValue(entity.getEventType().name())
+                .build());
+        return SendMessageBatchRequestEntry.builder()
+                .id(id)
+                .messageGroupId(entity.getAggregateId())
+                .messageDeduplicationId(id)
+                .messageBody(PayloadCodec.messageBody(entity.getPayload(), entity.getContentType(), entity.getContentEncoding()))
+                .messageAttributes(attributes)
+                .build();
+    }
+
+    /**
+     * Splits entries in order; an entry larger than {@code maxBytes} gets a chunk of its own, which SQS will reject.
+     */
+    public static List<List<SendMessageBatchRequestEntry>> chunk(List<SendMessageBatchRequestEntry> entries,
+                                                                 int maxEntries, int maxBytes) {
+        List<List<SendMessageBatchRequestEntry>> chunks = new ArrayList<>();
+        List<SendMessageBatchRequestEntry> current = new ArrayList<>(Math.min(maxEntries, entries.size()));
+        int currentBytes = 0;
+        for (SendMessageBatchRequestEntry entry : entries) {
+            int entryBytes = sizeOf(entry);
+            if (!current.isEmpty() && (current.size() == maxEntries || currentBytes + entryBytes > maxBytes)) {
+                chunks.add(current);
+                current = new ArrayList<>(maxEntries);
+                currentBytes = 0;
+            }
+            current.add(entry);
+            currentBytes += entryBytes;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * Size of an entry as SQS counts it: the body and each attribute's name, type and value.
+     */
+    public static int sizeOf(SendMessageBatchRequestEntry entry) {
+        int size = utf8Length(entry.messageBody());
+        for (Map.Entry<String, MessageAttributeValue> attribute : entry.messageAttributes().entrySet()) {
+            MessageAttributeValue value = attribute.getValue();
+            size += utf8Length(attribute.getKey()) + utf8Length(value.dataType());
+            size += value.binaryValue() != null ? value.binaryValue().asByteArrayUnsafe().length : utf8Length(value.stringValue());
+        }
+        return size;
+    }
+
+    static int utf8Length(CharSequence value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,7 @@
+package com.amazonaws.samples.service;
+
+/**
+ * Published inside the transaction that wrote outbox events, so listeners can react once it commits.
+ */
+public record OutboxEventsRecorded(int count) {
+}
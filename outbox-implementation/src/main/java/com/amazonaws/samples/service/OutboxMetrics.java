@@ -0,0 +1,113 @@
+package com.amazonaws.samples.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbox lag and relay health metrics.
+ */
+@Service
+@Log4j2
+public class OutboxMetrics {
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong backlogDepth = new AtomicLong();
+    private final AtomicLong oldestEventAgeMs = new AtomicLong();
+    private final DistributionSummary claimedEvents;
+    private final DistributionSummary batchSize;
+    private final Timer sendSucceeded;
+    private final Timer sendFailed;
+    private final Counter entriesFailedBySender;
+    private final Counter entriesFailedByService;
+    private final Counter entriesRetried;
+    private final Counter eventsQuarantined;
+
+    public OutboxMetrics(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("outbox.backlog.depth", backlogDepth, AtomicLong::get)
+                .description("Number of unpublished outbox events")
+                .register(meterRegistry);
+        TimeGauge.builder("outbox.backlog.oldest.age", oldestEventAgeMs, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest unpublished outbox event")
+                .register(meterRegistry);
+        this.claimedEvents = DistributionSummary.builder("outbox.relay.claimed")
+                .description("Outbox events claimed per relay run")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("outbox.relay.batch.size")
+                .description("Entries per SendMessageBatch call")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sendSucceeded = sendTimer(meterRegistry, "success");
+        this.sendFailed = sendTimer(meterRegistry, "error");
+        this.entriesFailedBySender = entriesFailed(meterRegistry, true);
+        this.entriesFailedByService = entriesFailed(meterRegistry, false);
+        this.entriesRetried = Counter.builder("outbox.relay.entries.retried")
+                .description("SendMessageBatch entries sent again after a failure")
+                .register(meterRegistry);
+        this.eventsQuarantined = Counter.builder("outbox.relay.events.quarantined")
+                .description("Outbox events moved to quarantine after repeated failures")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.metrics.backlog_ms}")
+    public void refreshBacklog() {
+        try {
+            jdbcTemplate.query("""
+                    SELECT count(*), coalesce(EXTRACT(EPOCH FROM now() - min(created_at)) * 1000, 0)
+                    FROM flights_outbox WHERE published_at IS NULL""", rs -> {
+                backlogDepth.set(rs.getLong(1));
+                oldestEventAgeMs.set(rs.getLong(2));
+            });
+        } catch (DataAccessException e) {
+            log.warn("Error refreshing outbox backlog metrics", e);
+        }
+    }
+
+    public void eventsClaimed(int count) {
+        claimedEvents.record(count);
+    }
+
+    public void batchSent(int entries, long startNanos, boolean succeeded) {
+        batchSize.record(entries);
+        (succeeded ? sendSucceeded : sendFailed).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void entryFailed(boolean senderFault) {
+        (senderFault ? entriesFailedBySender : entriesFailedByService).increment();
+    }
+
+    public void entriesRetried(int count) {
+        entriesRetried.increment(count);
+    }
+
+    public void eventsQuarantined(int count) {
+        eventsQuarantined.increment(count);
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("outbox.relay.send")
+                .description("SendMessageBatch latency")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter entriesFailed(MeterRegistry meterRegistry, boolean senderFault) {
+        return Counter.builder("outbox.relay.entries.failed")
+                .description("SendMessageBatch entries rejected by SQS")
+                .tag("sender_fault", Boolean.toString(senderFault))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,119 @@
+package com.amazonaws.samples.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listens for outbox and flight change notifications from every node.
+ */
+@Service
+@Log4j2
+public class OutboxNotificationListener implements SmartLifecycle {
+    private static final int RECEIVE_TIMEOUT_MS = 10_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final DataSource dataSource;
+    private final OutboxRelay outboxRelay;
+    private final FlightCache flightCache;
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @Value("${outbox.notify.enabled}")
+    private boolean notifyEnabled;
+
+    public OutboxNotificationListener(DataSource dataSource, OutboxRelay outboxRelay, FlightCache flightCache) {
+        this.dataSource = dataSource;
+        this.outboxRelay = outboxRelay;
+        this.flightCache = flightCache;
+    }
+
+    @Override
+    public void start() {
+        if (!notifyEnabled) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "outbox-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + OutboxNotifier.CHANNEL);
+                    statement.execute("LISTEN " + OutboxNotifier.FLIGHTS_CHANGED_CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                // Catch up on anything committed while we were not listening
+                flightCache.clear();
+                outboxRelay.wakeUp();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        dispatch(notifications);
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.error("Error listening for outbox notifications, reconnecting", e);
+                    sleep(RECONNECT_DELAY_MS);
+                }
+            }
+        }
+    }
+
+    private void dispatch(PGNotification[] notifications) {
+        boolean eventsRecorded = false;
+        List<Long> changedFlights = new ArrayList<>();
+        for (PGNotification notification : notifications) {
+            if (OutboxNotifier.FLIGHTS_CHANGED_CHANNEL.equals(notification.getName())) {
+                for (String id : notification.getParameter().split(",")) {
+                    changedFlights.add(Long.valueOf(id));
+                }
+            } else {
+                eventsRecorded = true;
+            }
+        }
+        if (!changedFlights.isEmpty()) {
+            flightCache.invalidate(changedFlights);
+        }
+        if (eventsRecorded) {
+            outboxRelay.wakeUp();
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.amazonaws.samples.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Notifies relays and flight caches, locally and on other nodes, once the transaction commits.
+ */
+@Service
+public class OutboxNotifier {
+    public static final String CHANNEL = "flights_outbox";
+    public static final String FLIGHTS_CHANGED_CHANNEL = "flights_changed";
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${outbox.notify.enabled}")
+    private boolean notifyEnabled;
+
+    @Value("${outbox.relay.mode}")
+    private OutboxRelayMode relayMode;
+
+    public OutboxNotifier(ApplicationEventPublisher eventPublisher, JdbcTemplate jdbcTemplate) {
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void eventsRecorded(int count) {
+        eventPublisher.publishEvent(new OutboxEventsRecorded(count));
+        // The WAL relay reads outbox events as they are committed and needs no wake-up
+        if (notifyEnabled && relayMode == OutboxRelayMode.POLLING) {
+            jdbcTemplate.execute("NOTIFY " + CHANNEL);
+        }
+    }
+
+    /**
+     * Signals that flights were changed or deleted. The notification payload holds their comma-separated ids.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void flightsChanged(List<Long> flightIds) {
+        eventPublisher.publishEvent(new FlightsChanged(flightIds));
+        if (notifyEnabled) {
+            jdbcTemplate.queryForRowSet("SELECT pg_notify(?, ?)", FLIGHTS_CHANGED_CHANNEL,
+                    flightIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.amazonaws.samples.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Creates and drops the daily partitions of {@code flights_outbox}.
+ */
+@Service
+@Log4j2
+public class OutboxPartitionManager {
+    private static final String TABLE = "flights_outbox";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${outbox.storage_mode}")
+    private OutboxStorageMode storageMode;
+
+    @Value("${outbox.partition.precreate_days}")
+    private int precreateDays;
+
+    @Value("${outbox.partition.retention_days}")
+    private int retentionDays;
+
+    public OutboxPartitionManager(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${outbox.partition.maintenance_ms}")
+    public void maintainPartitions() {
+        if (storageMode != OutboxStorageMode.PARTITIONED) {
+            return;
+        }
+        if (!isPartitioned()) {
+            log.error("Table " + TABLE + " is not partitioned, drain and drop it to have it recreated on startup");
+            return;
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int day = 0; day <= precreateDays; day++) {
+            createPartition(today.plusDays(day));
+        }
+        dropPartitionsBefore(today.minusDays(retentionDays));
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid
+                               WHERE c.relname = ?)""", Boolean.class, TABLE));
+    }
+
+    private void createPartition(LocalDate day) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + PARTITION_PREFIX + PARTITION_SUFFIX.format(day)
+                + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + day + " 00:00:00+00') TO ('" + day.plusDays(1) + " 00:00:00+00')");
+    }
+
+    private void dropPartitionsBefore(LocalDate cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = ?""", String.class, TABLE);
+        for (String partition : partitions) {
+            LocalDate day = partitionDay(partition);
+            if (day == null || !day.isBefore(cutoff)) {
+                continue;
+            }
+            Boolean pending = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE published_at IS NULL)", Boolean.class);
+            if (Boolean.TRUE.equals(pending)) {
+                log.warn("Keeping outbox partition " + partition + ", it still holds unpublished events");
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            log.info("Dropped outbox partition " + partition);
+        }
+    }
+
+    private static LocalDate partitionDay(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
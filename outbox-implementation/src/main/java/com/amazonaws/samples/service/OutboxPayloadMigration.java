@@ -0,0 +1,48 @@
+package com.amazonaws.samples.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves payloads of legacy outbox rows to {@code encoded_payload} on startup.
+ */
+@Service
+@Log4j2
+public class OutboxPayloadMigration {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * @param entityManagerFactory only required so that the schema is updated first
+     */
+    public OutboxPayloadMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        Boolean legacy = jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM information_schema.columns
+                               WHERE table_schema = current_schema() AND table_name = 'flights_outbox'
+                                 AND column_name = 'payload')""", Boolean.class);
+        if (!Boolean.TRUE.equals(legacy)) {
+            return;
+        }
+        Integer migrated = transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update("""
+                    UPDATE flights_outbox
+                    SET encoded_payload = convert_to(payload::text, 'UTF8'), content_type = 'application/json'
+                    WHERE encoded_payload IS NULL AND payload IS NOT NULL""");
+            jdbcTemplate.execute("ALTER TABLE flights_outbox DROP COLUMN IF EXISTS payload");
+            return updated;
+        });
+        log.info("Moved " + migrated + " outbox events to encoded_payload and dropped the former payload column");
+    }
+}
@@ -0,0 +1,145 @@
+package com.amazonaws.samples.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polling relay: publishes the outbox on one lane per destination, woken up by notifications.
+ */
+@Service
+@Log4j2
+public class OutboxRelay {
+    private final QueueService queueService;
+    private final ThreadPoolTaskExecutor relayExecutor;
+    private final List<Lane> lanes;
+
+    @Value("${outbox.relay.mode}")
+    private OutboxRelayMode relayMode;
+
+    @Value("${sqs.relay_workers}")
+    private int relayWorkers;
+
+    @Value("${sqs.min_batch_size}")
+    private int minBatchSize;
+
+    @Value("${sqs.max_batch_size}")
+    private int maxBatchSize;
+
+    @Value("${outbox.polling.min_ms}")
+    private long minPollingMs;
+
+    @Value("${outbox.polling.max_ms}")
+    private long maxPollingMs;
+
+    public OutboxRelay(QueueService queueService, ThreadPoolTaskExecutor relayExecutor, OutboxRoutes outboxRoutes) {
+        this.queueService = queueService;
+        this.relayExecutor = relayExecutor;
+        this.lanes = outboxRoutes.destinations().stream().map(Lane::new).toList();
+    }
+
+    @TransactionalEventListener
+    public void onEventsRecorded(OutboxEventsRecorded event) {
+        wakeUp();
+    }
+
+    public void wakeUp() {
+        if (relayMode != OutboxRelayMode.POLLING) {
+            return;
+        }
+        lanes.forEach(Lane::wakeUp);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.polling.min_ms}")
+    public void relayEvents() {
+        if (relayMode != OutboxRelayMode.POLLING) {
+            return;
+        }
+        for (Lane lane : lanes) {
+            if (lane.isPollDue()) {
+                lane.startWorkers();
+            }
+        }
+    }
+
+    /**
+     * The relay workers and polling state of a destination.
+     */
+    private class Lane {
+        private final OutboxRoutes.Destination destination;
+        private final AtomicInteger activeWorkers = new AtomicInteger();
+        private final AtomicBoolean wakeUpRequested = new AtomicBoolean();
+        private long pollingMs;
+        private long nextPollNanos = System.nanoTime();
+
+        Lane(OutboxRoutes.Destination destination) {
+            this.destination = destination;
+        }
+
+        void wakeUp() {
+            wakeUpRequested.set(true);
+            synchronized (this) {
+                pollingMs = minPollingMs;
+                nextPollNanos = System.nanoTime();
+            }
+            startWorkers();
+        }
+
+        synchronized boolean isPollDue() {
+            return System.nanoTime() - nextPollNanos >= 0;
+        }
+
+        void startWorkers() {
+            int active;
+            while ((active = activeWorkers.get()) < relayWorkers) {
+                if (activeWorkers.compareAndSet(active, active + 1)) {
+                    relayExecutor.execute(this::drainOutbox);
+                }
+            }
+        }
+
+        private void drainOutbox() {
+            boolean foundEvents = false;
+            boolean failed = true;
+            try {
+                int pageSize = minBatchSize;
+                boolean moreEvents = true;
+                while (moreEvents) {
+                    wakeUpRequested.set(false);
+                    int forwarded = queueService.forwardEventsToSQS(destination, pageSize);
+                    foundEvents |= forwarded > 0;
+                    if (forwarded >= pageSize) {
+                        pageSize = Math.min(pageSize * 2, maxBatchSize);
+                        moreEvents = true;
+                    } else {
+                        pageSize = Math.max(pageSize / 2, minBatchSize);
+                        moreEvents = wakeUpRequested.get();
+                    }
+                }
+                failed = false;
+            } catch (RuntimeException e) {
+                log.error("Error forwarding outbox events to SQS queue " + destination.queueName(), e);
+            } finally {
+                activeWorkers.decrementAndGet();
+                scheduleNextPoll(foundEvents && !failed);
+            }
+            // a wake-up that arrived after the last page was claimed found every worker still active
+            if (!failed && wakeUpRequested.get()) {
+                wakeUp();
+            }
+        }
+
+        private synchronized void scheduleNextPoll(boolean foundEvents) {
+            pollingMs = foundEvents ? minPollingMs : Math.max(minPollingMs, Math.min(pollingMs * 2, maxPollingMs));
+            nextPollNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pollingMs);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.amazonaws.samples.service;
+
+/**
+ * How outbox events are found and forwarded to SQS, set with {@code outbox.relay.mode}.
+ */
+public enum OutboxRelayMode {
+    /**
+     * Relay workers claim pending rows from {@code flights_outbox}, see {@link OutboxRelay}.
+     */
+    POLLING,
+    /**
+     * A single relay tails the outbox inserts from the write-ahead log, see {@link WalRelay}.
+     */
+    WAL
+}
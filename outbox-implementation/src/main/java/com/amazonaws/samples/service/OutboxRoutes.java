@@ -0,0 +1,56 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.FlightOutbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Routes outbox event types to SQS queues.
+ */
+@Component
+public class OutboxRoutes {
+    private static final String ROUTE_PREFIX = "outbox.routes.";
+
+    public record Destination(String queueName, List<FlightOutbox.EventType> eventTypes) {
+
+        public List<String> eventTypeNames() {
+            return eventTypes.stream().map(Enum::name).toList();
+        }
+    }
+
+    private final List<Destination> destinations;
+    private final Map<FlightOutbox.EventType, Destination> destinationsByEventType = new EnumMap<>(FlightOutbox.EventType.class);
+
+    public OutboxRoutes(Environment environment, @Value("${sqs.queue_name}") String defaultQueueName) {
+        Map<String, List<FlightOutbox.EventType>> eventTypesByQueue = new LinkedHashMap<>();
+        for (FlightOutbox.EventType eventType : FlightOutbox.EventType.values()) {
+            String queueName = environment.getProperty(ROUTE_PREFIX + eventType.name().toLowerCase(Locale.ROOT));
+            if (queueName == null || queueName.isBlank()) {
+                queueName = defaultQueueName;
+            }
+            eventTypesByQueue.computeIfAbsent(queueName, name -> new ArrayList<>()).add(eventType);
+        }
+        this.destinations = eventTypesByQueue.entrySet().stream()
+                .map(route -> new Destination(route.getKey(), List.copyOf(route.getValue())))
+                .toList();
+        for (Destination destination : destinations) {
+            destination.eventTypes().forEach(eventType -> destinationsByEventType.put(eventType, destination));
+        }
+    }
+
+    public List<Destination> destinations() {
+        return destinations;
+    }
+
+    public Destination destinationOf(FlightOutbox.EventType eventType) {
+        return destinationsByEventType.get(eventType);
+    }
+}
@@ -0,0 +1,15 @@
+package com.amazonaws.samples.service;
+
+/**
+ * How published outbox events are removed from {@code flights_outbox}, set with {@code outbox.storage_mode}.
+ */
+public enum OutboxStorageMode {
+    /**
+     * Published rows are deleted by the relay.
+     */
+    DELETE,
+    /**
+     * Published rows are kept and dropped with their daily partition, see {@link OutboxPartitionManager}.
+     */
+    PARTITIONED
+}
@@ -0,0 +1,129 @@
+package com.amazonaws.samples.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes outbox payloads and decodes them from SQS messages in whichever format they were sent.
+ */
+@Component
+public class PayloadCodec {
+    public static final String CONTENT_TYPE_ATTRIBUTE = "contentType";
+    public static final String CONTENT_ENCODING_ATTRIBUTE = "contentEncoding";
+    public static final String PAYLOAD_ATTRIBUTE = "payload";
+    public static final String GZIP = "gzip";
+    /**
+     * Body of the messages whose payload is in the {@value #PAYLOAD_ATTRIBUTE} attribute, as SQS requires one.
+     */
+    public static final String BINARY_PAYLOAD_BODY = "-";
+
+    public record EncodedPayload(byte[] data, String contentType, String contentEncoding) {
+    }
+
+    private final Map<PayloadFormat, ObjectMapper> mappers = new EnumMap<>(PayloadFormat.class);
+    private final PayloadFormat format;
+    private final boolean gzip;
+
+    public PayloadCodec(ObjectMapper objectMapper, @Value("${outbox.payload.format}") PayloadFormat format,
+                        @Value("${outbox.payload.gzip}") boolean gzip) {
+        this.mappers.put(PayloadFormat.JSON, objectMapper);
+        this.mappers.put(PayloadFormat.SMILE, objectMapper.copyWith(new SmileFactory()));
+        this.mappers.put(PayloadFormat.CBOR, objectMapper.copyWith(new CBORFactory()));
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    public EncodedPayload encode(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            mappers.get(format).writeValue(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new EncodedPayload(bytes.toByteArray(), format.contentType(), gzip ? GZIP : null);
+    }
+
+    public JsonNode decode(byte[] data, String contentType, String contentEncoding) {
+        try (InputStream in = GZIP.equals(contentEncoding)
+                ? new GZIPInputStream(new ByteArrayInputStream(data)) : new ByteArrayInputStream(data)) {
+            return mappers.get(PayloadFormat.forContentType(contentType)).readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes the payload of {@code message}, including legacy Base64 bodies.
+     */
+    public JsonNode decode(Message message) {
+        String contentType = stringAttribute(message, CONTENT_TYPE_ATTRIBUTE);
+        String contentEncoding = stringAttribute(message, CONTENT_ENCODING_ATTRIBUTE);
+        MessageAttributeValue payload = message.messageAttributes().get(PAYLOAD_ATTRIBUTE);
+        byte[] data;
+        if (payload != null) {
+            data = payload.binaryValue().asByteArrayUnsafe();
+        } else if (isText(contentType, contentEncoding)) {
+            data = message.body().getBytes(StandardCharsets.UTF_8);
+        } else {
+            data = Base64.getDecoder().decode(message.body());
+        }
+        return decode(data, contentType, contentEncoding);
+    }
+
+    public static String messageBody(byte[] data, String contentType, String contentEncoding) {
+        return isText(contentType, contentEncoding) ? new String(data, StandardCharsets.UTF_8) : BINARY_PAYLOAD_BODY;
+    }
+
+    public static Map<String, MessageAttributeValue> messageAttributes(byte[] data, String contentType,
+                                                                       String contentEncoding) {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>(4);
+        if (contentType != null) {
+            attributes.put(CONTENT_TYPE_ATTRIBUTE, stringValue(contentType));
+        }
+        if (contentEncoding != null) {
+            attributes.put(CONTENT_ENCODING_ATTRIBUTE, stringValue(contentEncoding));
+        }
+        if (!isText(contentType, contentEncoding)) {
+            attributes.put(PAYLOAD_ATTRIBUTE, binaryValue(data));
+        }
+        return attributes;
+    }
+
+    static MessageAttributeValue binaryValue(byte[] data) {
+        return MessageAttributeValue.builder().dataType("Binary").binaryValue(SdkBytes.fromByteArrayUnsafe(data)).build();
+    }
+
+    private static boolean isText(String contentType, String contentEncoding) {
+        return contentEncoding == null && PayloadFormat.forContentType(contentType) == PayloadFormat.JSON;
+    }
+
+    private static MessageAttributeValue stringValue(String value) {
+        return MessageAttributeValue.builder().dataType("String").stringValue(value).build();
+    }
+
+    private static String stringAttribute(Message message, String name) {
+        MessageAttributeValue value = message.messageAttributes().get(name);
+        return value == null ? null : value.stringValue();
+    }
+}
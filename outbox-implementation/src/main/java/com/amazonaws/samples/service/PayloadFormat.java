@@ -0,0 +1,38 @@
+package com.amazonaws.samples.service;
+
+/**
+ * Serialization formats of outbox payloads, identified on SQS messages by their content type.
+ */
+public enum PayloadFormat {
+    JSON("application/json"),
+    /**
+     * Binary JSON with back-references to repeated field names and values.
+     */
+    SMILE("application/x-jackson-smile"),
+    CBOR("application/cbor");
+
+    private final String contentType;
+
+    PayloadFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * The format of {@code contentType}, defaulting to {@link #JSON} for messages sent without a content type.
+     */
+    public static PayloadFormat forContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        for (PayloadFormat format : values()) {
+            if (format.contentType.equals(contentType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported payload content type " + contentType);
+    }
+}
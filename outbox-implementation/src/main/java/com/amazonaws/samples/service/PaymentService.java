@@ -1,54 +1,247 @@
 package com.amazonaws.samples.service;
 
+import com.amazonaws.samples.configuration.ThreadMode;
+import com.amazonaws.samples.model.FlightOutbox;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.log4j.Log4j2;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
-import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Consumes flight events, processing message groups in parallel and the messages of a group in order.
+ */
 @Service
-@Transactional
 @Log4j2
-public class PaymentService {
+public class PaymentService implements SmartLifecycle {
+    private static final int MAX_MESSAGES = 10;
+    private static final long ERROR_BACKOFF_MS = 5_000;
+
     private final SqsClient sqsClient;
+    private final PayloadCodec payloadCodec;
+    private final ClaimCheck claimCheck;
+    private final ProcessedEvents processedEvents;
+    private final Counter duplicates;
+    private final Timer receiveToDelete;
+    private final List<Thread> pollers = new ArrayList<>();
+    private ExecutorService groupExecutor;
+    private volatile boolean running;
+    private volatile String queueUrl;
 
     @Value("${sqs.queue_name}")
     private String sqsQueueName;
 
-    public PaymentService() {
-        this.sqsClient = SqsClient.builder()
-                .build();
+    @Value("${sqs.consumer.pollers}")
+    private int pollerCount;
+
+    @Value("${sqs.consumer.workers}")
+    private int workerCount;
+
+    @Value("${sqs.consumer.wait_time_seconds}")
+    private int waitTimeSeconds;
+
+    @Value("${execution.threads}")
+    private ThreadMode threadMode;
+
+    public PaymentService(SqsClient sqsClient, PayloadCodec payloadCodec, ClaimCheck claimCheck,
+                          ProcessedEvents processedEvents, MeterRegistry meterRegistry) {
+        this.sqsClient = sqsClient;
+        this.payloadCodec = payloadCodec;
+        this.claimCheck = claimCheck;
+        this.processedEvents = processedEvents;
+        this.duplicates = Counter.builder("payment.duplicates")
+                .description("Redelivered flight events skipped by the Payment service")
+                .register(meterRegistry);
+        this.receiveToDelete = Timer.builder("payment.receive.to.delete")
+                .description("Time from receiving a flight event to deleting it from the queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        groupExecutor = Executors.newFixedThreadPool(workerCount, threadMode.threadFactory("payment-worker-"));
+        ThreadFactory pollerFactory = threadMode.threadFactory("payment-poller-");
+        for (int i = 0; i < pollerCount; i++) {
+            Thread poller = pollerFactory.newThread(this::poll);
+            poller.setDaemon(true);
+            poller.start();
+            pollers.add(poller);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        pollers.forEach(Thread::interrupt);
+        pollers.clear();
+        groupExecutor.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                readEventsFromSQS();
+            } catch (RuntimeException e) {
+                if (running) {
+                    log.error("Error reading flight events from SQS", e);
+                    sleep(ERROR_BACKOFF_MS);
+                }
+            }
+        }
     }
 
-    @Scheduled(fixedDelayString = "${sqs.polling_ms}")
-    @Retryable(maxAttempts = 5, backoff = @Backoff(delay = 2000, multiplier = 2))
     public void readEventsFromSQS() {
-        GetQueueUrlRequest getQueueRequest = GetQueueUrlRequest.builder()
-                .queueName(sqsQueueName)
-                .build();
-        String sqsQueueUrl = sqsClient.getQueueUrl(getQueueRequest).queueUrl();
+        String sqsQueueUrl = getQueueUrl();
         ReceiveMessageRequest receiveRequest = ReceiveMessageRequest.builder()
                 .queueUrl(sqsQueueUrl)
+                .maxNumberOfMessages(MAX_MESSAGES)
+                .waitTimeSeconds(waitTimeSeconds)
+                .attributeNamesWithStrings(MessageSystemAttributeName.MESSAGE_GROUP_ID.toString(),
+                        MessageSystemAttributeName.MESSAGE_DEDUPLICATION_ID.toString())
+                .messageAttributeNames(PayloadCodec.CONTENT_TYPE_ATTRIBUTE, PayloadCodec.CONTENT_ENCODING_ATTRIBUTE,
+                        PayloadCodec.PAYLOAD_ATTRIBUTE, ClaimCheck.CLAIM_CHECK_ATTRIBUTE, OutboxBatches.EVENT_TYPE_ATTRIBUTE)
                 .build();
         List<Message> messages = sqsClient.receiveMessage(receiveRequest).messages();
+        long receivedNanos = System.nanoTime();
+        if (messages.isEmpty()) {
+            return;
+        }
 
-        // Print out the messages
+        Set<String> alreadyProcessed = processedEvents.findProcessed(messages.stream().map(PaymentService::eventId).toList());
+        Set<String> received = new HashSet<>();
+        List<Message> processed = new ArrayList<>(messages.size());
+        Map<String, List<Message>> groups = new LinkedHashMap<>();
         for (Message m : messages) {
-            log.info("Flight event received: " + m.body() + ". Processing payment.");
-            DeleteMessageRequest deleteMessageRequest = DeleteMessageRequest.builder()
-                    .queueUrl(sqsQueueUrl)
-                    .receiptHandle(m.receiptHandle())
-                    .build();
-            sqsClient.deleteMessage(deleteMessageRequest);
+            if (alreadyProcessed.contains(eventId(m)) || !received.add(eventId(m))) {
+                log.info("Skipping flight event " + eventId(m) + ", it was already processed");
+                duplicates.increment();
+                processed.add(m);
+                continue;
+            }
+            String groupId = m.attributesAsStrings().getOrDefault(MessageSystemAttributeName.MESSAGE_GROUP_ID.toString(), m.messageId());
+            groups.computeIfAbsent(groupId, id -> new ArrayList<>()).add(m);
+        }
+        List<Message> paid = new ArrayList<>(messages.size());
+        if (groups.size() == 1) {
+            paid.addAll(processGroup(groups.values().iterator().next()));
+        } else {
+            List<CompletableFuture<List<Message>>> results = new ArrayList<>(groups.size());
+            groups.values().forEach(group -> results.add(CompletableFuture.supplyAsync(() -> processGroup(group), groupExecutor)));
+            results.forEach(result -> paid.addAll(result.join()));
+        }
+        processedEvents.recordProcessed(paid.stream().map(PaymentService::eventId).toList());
+        processed.addAll(paid);
+        deleteMessages(sqsQueueUrl, processed, receivedNanos);
+    }
+
+    /**
+     * The deduplication id the relay gave the event, which identifies it across redeliveries and retried sends.
+     */
+    private static String eventId(Message m) {
+        return m.attributesAsStrings().getOrDefault(MessageSystemAttributeName.MESSAGE_DEDUPLICATION_ID.toString(), m.messageId());
+    }
+
+    /**
+     * Processes a group in order, stopping at the first failure so later messages do not overtake it.
+     */
+    private List<Message> processGroup(List<Message> group) {
+        List<Message> processed = new ArrayList<>(group.size());
+        for (Message m : group) {
+            try {
+                processPayment(m);
+                processed.add(m);
+            } catch (RuntimeException e) {
+                log.error("Error processing flight event " + m.messageId() + ", it will be redelivered", e);
+                break;
+            }
         }
+        return processed;
+    }
 
+    private void processPayment(Message m) {
+        JsonNode flight = payloadCodec.decode(claimCheck.resolve(m));
+        switch (eventType(m)) {
+            case FLIGHT_BOOKED -> log.info("Flight event received: " + flight + ". Processing payment.");
+            case FLIGHT_CHANGED -> log.info("Flight change received: " + flight + ". Adjusting payment.");
+            case FLIGHT_CANCELLED -> log.info("Flight cancellation received: " + flight + ". Processing refund.");
+        }
+    }
+
+    /**
+     * The type of the event, {@code FLIGHT_BOOKED} for messages sent before event types were introduced.
+     */
+    private static FlightOutbox.EventType eventType(Message m) {
+        MessageAttributeValue eventType = m.messageAttributes().get(OutboxBatches.EVENT_TYPE_ATTRIBUTE);
+        return eventType == null ? FlightOutbox.EventType.FLIGHT_BOOKED : FlightOutbox.EventType.valueOf(eventType.stringValue());
+    }
+
+    private void deleteMessages(String sqsQueueUrl, List<Message> messages, long receivedNanos) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            entries.add(DeleteMessageBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .receiptHandle(messages.get(i).receiptHandle())
+                    .build());
+        }
+        DeleteMessageBatchRequest deleteMessageBatchRequest = DeleteMessageBatchRequest.builder()
+                .queueUrl(sqsQueueUrl)
+                .entries(entries)
+                .build();
+        DeleteMessageBatchResponse response = sqsClient.deleteMessageBatch(deleteMessageBatchRequest);
+        long deletedNanos = System.nanoTime();
+        response.successful().forEach(deleted -> receiveToDelete.record(deletedNanos - receivedNanos, TimeUnit.NANOSECONDS));
+        for (BatchResultErrorEntry failed : response.failed()) {
+            log.error("Error deleting flight event " + messages.get(Integer.parseInt(failed.id())).messageId()
+                    + " (" + failed.code() + "): " + failed.message());
+        }
+    }
+
+    private String getQueueUrl() {
+        if (queueUrl == null) {
+            queueUrl = sqsClient.getQueueUrl(request -> request.queueName(sqsQueueName)).queueUrl();
+        }
+        return queueUrl;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-}
\ No newline at end of file
+}
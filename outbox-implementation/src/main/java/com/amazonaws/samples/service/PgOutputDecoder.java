@@ -0,0 +1,100 @@
+package com.amazonaws.samples.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the transaction boundaries and inserts of the {@code pgoutput} plugin, protocol version 1.
+ */
+final class PgOutputDecoder {
+
+    record Begin() {
+    }
+
+    /**
+     * @param endLsn the LSN right after the commit record, to confirm once the transaction is processed
+     */
+    record Commit(long endLsn) {
+    }
+
+    /**
+     * Text values by column name, {@code null} for SQL nulls and unchanged toasted values.
+     */
+    record Insert(String relation, Map<String, String> values) {
+    }
+
+    private record Relation(String name, List<String> columns) {
+    }
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    Object decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case 'B':
+                return new Begin();
+            case 'C':
+                buffer.get(); // flags
+                buffer.getLong(); // commit LSN
+                return new Commit(buffer.getLong());
+            case 'R':
+                readRelation(buffer);
+                return null;
+            case 'I':
+                return readInsert(buffer);
+            default:
+                return null;
+        }
+    }
+
+    private void readRelation(ByteBuffer buffer) {
+        int relationId = buffer.getInt();
+        readString(buffer); // namespace
+        String name = readString(buffer);
+        buffer.get(); // replica identity
+        int columnCount = buffer.getShort();
+        String[] columns = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            buffer.get(); // flags
+            columns[i] = readString(buffer);
+            buffer.getInt(); // type OID
+            buffer.getInt(); // type modifier
+        }
+        relations.put(relationId, new Relation(name, List.of(columns)));
+    }
+
+    private Insert readInsert(ByteBuffer buffer) {
+        Relation relation = relations.get(buffer.getInt());
+        if (relation == null) {
+            throw new IllegalStateException("Insert into a relation that was not described first");
+        }
+        buffer.get(); // 'N', new tuple
+        int columnCount = buffer.getShort();
+        Map<String, String> values = new LinkedHashMap<>(columnCount * 2);
+        for (int i = 0; i < columnCount; i++) {
+            byte kind = buffer.get();
+            String value = null;
+            if (kind == 't') {
+                byte[] text = new byte[buffer.getInt()];
+                buffer.get(text);
+                value = new String(text, StandardCharsets.UTF_8);
+            }
+            values.put(relation.columns().get(i), value);
+        }
+        return new Insert(relation.name(), values);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            // find the terminating null byte
+        }
+        byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
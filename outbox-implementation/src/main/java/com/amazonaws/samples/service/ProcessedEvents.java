@@ -0,0 +1,86 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.repository.ProcessedEventRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idempotency store of the Payment service, backed by a table behind an in-memory cache.
+ */
+@Service
+@Log4j2
+public class ProcessedEvents {
+    private static final String INSERT_PROCESSED_EVENT =
+            "INSERT INTO processed_events (id, processed_at) VALUES (?, ?) ON CONFLICT (id) DO NOTHING";
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final RecentlyProcessed recentlyProcessed;
+
+    @Value("${sqs.consumer.idempotency.retention_days}")
+    private int retentionDays;
+
+    public ProcessedEvents(ProcessedEventRepository processedEventRepository, JdbcTemplate jdbcTemplate,
+                           @Value("${sqs.consumer.idempotency.cache_size}") int cacheSize,
+                           @Value("${sqs.consumer.idempotency.cache_ttl_s}") long cacheTtlSeconds) {
+        this.processedEventRepository = processedEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.recentlyProcessed = new RecentlyProcessed(cacheSize, TimeUnit.SECONDS.toNanos(cacheTtlSeconds));
+    }
+
+    /**
+     * Returns the ids among {@code ids} that were already processed.
+     */
+    public Set<String> findProcessed(Collection<String> ids) {
+        Set<String> processed = new HashSet<>();
+        Set<String> unknown = new LinkedHashSet<>(ids.size());
+        for (String id : ids) {
+            if (recentlyProcessed.contains(id)) {
+                processed.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (String id : processedEventRepository.findProcessedIds(unknown)) {
+                recentlyProcessed.add(id);
+                processed.add(id);
+            }
+        }
+        return processed;
+    }
+
+    public void recordProcessed(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Timestamp processedAt = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_PROCESSED_EVENT, ids, ids.size(), (statement, id) -> {
+            statement.setString(1, id);
+            statement.setTimestamp(2, processedAt);
+        });
+        ids.forEach(recentlyProcessed::add);
+    }
+
+    @Scheduled(fixedDelayString = "${sqs.consumer.idempotency.purge_ms}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = processedEventRepository.deleteProcessedBefore(Instant.now().minus(Duration.ofDays(retentionDays)));
+        if (purged > 0) {
+            log.info("Purged " + purged + " processed event ids older than " + retentionDays + " days");
+        }
+    }
+}
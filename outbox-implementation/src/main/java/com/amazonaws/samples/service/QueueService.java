@@ -1,64 +1,403 @@
 package com.amazonaws.samples.service;
 
 import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.model.FlightOutboxQuarantine;
+import com.amazonaws.samples.repository.OutboxQuarantineRepository;
 import com.amazonaws.samples.repository.OutboxRepository;
 
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Pageable;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
 import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
 import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
 @Service
 @Transactional
+@Log4j2
 public class QueueService {
     private final OutboxRepository outboxRepository;
-    private final SqsClient sqsClient;
+    private final OutboxQuarantineRepository quarantineRepository;
+    private final SqsAsyncClient sqsAsyncClient;
+    private final OutboxMetrics outboxMetrics;
+    private final ClaimCheck claimCheck;
+    private final OutboxRoutes outboxRoutes;
+    private final int maxInFlightBatches;
+    private final Map<String, Semaphore> inFlightBatches = new ConcurrentHashMap<>();
+    private final Map<String, String> queueUrls = new ConcurrentHashMap<>();
 
-    @Value("${sqs.queue_name}")
-    private String sqsQueueName;
+    @Value("${sqs.entry_max_attempts}")
+    private int entryMaxAttempts;
 
-    @Value("${sqs.batch_size}")
-    private int batchSize;
+    @Value("${outbox.retry.max_attempts}")
+    private int maxAttempts;
 
-    public QueueService(OutboxRepository outboxRepository) {
+    @Value("${outbox.retry.initial_backoff_ms}")
+    private long initialBackoffMs;
+
+    @Value("${outbox.retry.max_backoff_ms}")
+    private long maxBackoffMs;
+
+    @Value("${outbox.storage_mode}")
+    private OutboxStorageMode storageMode;
+
+    public QueueService(OutboxRepository outboxRepository, OutboxQuarantineRepository quarantineRepository,
+                        SqsAsyncClient sqsAsyncClient, OutboxMetrics outboxMetrics, ClaimCheck claimCheck,
+                        OutboxRoutes outboxRoutes, @Value("${sqs.max_in_flight_batches}") int maxInFlightBatches) {
         this.outboxRepository = outboxRepository;
-        this.sqsClient = SqsClient.builder()
-                .build();
+        this.quarantineRepository = quarantineRepository;
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.outboxMetrics = outboxMetrics;
+        this.claimCheck = claimCheck;
+        this.outboxRoutes = outboxRoutes;
+        this.maxInFlightBatches = maxInFlightBatches;
     }
 
-    @Scheduled(fixedDelayString = "${sqs.polling_ms}")
-    @Retryable(maxAttempts = 5, backoff = @Backoff(delay = 2000, multiplier = 2))
-    public void forwardEventsToSQS() {
-        List<FlightOutbox> entities = outboxRepository.findAllByOrderByIdAsc(Pageable.ofSize(batchSize)).toList();
+    /**
+     * Claims a page of the events routed to {@code destination} and publishes it; returns the number claimed.
+     */
+    public int forwardEventsToSQS(OutboxRoutes.Destination destination, int batchSize) {
+        List<FlightOutbox> entities = outboxRepository.claimBatch(destination.eventTypeNames(), batchSize);
+        outboxMetrics.eventsClaimed(entities.size());
         if (!entities.isEmpty()) {
-            GetQueueUrlRequest getQueueRequest = GetQueueUrlRequest.builder()
-                    .queueName(sqsQueueName)
-                    .build();
-            String queueUrl = this.sqsClient.getQueueUrl(getQueueRequest).queueUrl();
-            List<SendMessageBatchRequestEntry> messageEntries = new ArrayList<>();
-            entities.forEach(entity -> messageEntries.add(SendMessageBatchRequestEntry.builder()
-                    .id(entity.getId().toString())
-                    .messageGroupId(entity.getAggregateId())
-                    .messageDeduplicationId(entity.getId().toString())
-                    .messageBody(entity.getPayload().toString())
-                    .build())
-            );
-            SendMessageBatchRequest sendMessageBatchRequest = SendMessageBatchRequest.builder()
-                    .queueUrl(queueUrl)
-                    .entries(messageEntries)
-                    .build();
-            sqsClient.sendMessageBatch(sendMessageBatchRequest);
-            outboxRepository.deleteAllInBatch(entities);
+            String queueUrl = getQueueUrl(destination.queueName());
+            Semaphore slots = inFlightBatches.computeIfAbsent(destination.queueName(),
+                    queueName -> new Semaphore(maxInFlightBatches));
+            List<FlightOutboxQuarantine> quarantined = new ArrayList<>();
+            Map<String, FlightOutbox> entitiesByEntryId = new HashMap<>();
+            List<SendMessageBatchRequestEntry> entries = new ArrayList<>(entities.size());
+            for (FlightOutbox entity : entities) {
+                SendMessageBatchRequestEntry entry;
+                try {
+                    entry = claimCheck.offload(OutboxBatches.toEntry(entity));
+                } catch (RuntimeException e) {
+                    attemptFailed(entity, e.toString(), true, quarantined);
+                    continue;
+                }
+                if (oversized(entity, entry, quarantined)) {
+                    continue;
+                }
+                entitiesByEntryId.put(entry.id(), entity);
+                entries.add(entry);
+            }
+            Deque<Batch> unsent = new ArrayDeque<>();
+            OutboxBatches.chunk(entries, OutboxBatches.MAX_BATCH_ENTRIES, OutboxBatches.MAX_BATCH_BYTES)
+                    .forEach(chunk -> unsent.add(new Batch(chunk, 1)));
+
+            BlockingQueue<BatchResult> acknowledgements = new LinkedBlockingQueue<>();
+            int pending = 0;
+            while (!unsent.isEmpty() || pending > 0) {
+                BatchResult result = acknowledgements.poll();
+                if (result == null && !unsent.isEmpty() && acquireSlot(slots, pending == 0)) {
+                    send(queueUrl, unsent.poll(), slots, acknowledgements);
+                    pending++;
+                    continue;
+                }
+                if (result == null) {
+                    result = takeUninterruptibly(acknowledgements);
+                }
+                pending--;
+                acknowledge(result, entitiesByEntryId, unsent, quarantined);
+            }
+            if (!quarantined.isEmpty()) {
+                quarantineRepository.saveAll(quarantined);
+                outboxRepository.deleteAllByIdInBatch(quarantined.stream().map(FlightOutboxQuarantine::getId).toList());
+                outboxMetrics.eventsQuarantined(quarantined.size());
+            }
+        }
+        return entities.size();
+    }
+
+    /**
+     * Publishes events read from the WAL in commit order, retrying until each is sent or quarantined.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void forwardInOrder(List<FlightOutbox> events) throws InterruptedException {
+        outboxMetrics.eventsClaimed(events.size());
+        List<FlightOutboxQuarantine> quarantined = new ArrayList<>();
+        try {
+            List<SendMessageBatchRequestEntry> chunk = new ArrayList<>(OutboxBatches.MAX_BATCH_ENTRIES);
+            Map<String, FlightOutbox> entitiesByEntryId = new HashMap<>();
+            Set<String> chunkGroups = new HashSet<>();
+            OutboxRoutes.Destination chunkDestination = null;
+            int chunkBytes = 0;
+            for (FlightOutbox entity : events) {
+                SendMessageBatchRequestEntry entry = offloadInOrder(entity, quarantined);
+                if (entry == null) {
+                    continue;
+                }
+                OutboxRoutes.Destination destination = outboxRoutes.destinationOf(entity.getEventType());
+                int entryBytes = OutboxBatches.sizeOf(entry);
+                if (!chunk.isEmpty() && (destination != chunkDestination
+                        || chunk.size() == OutboxBatches.MAX_BATCH_ENTRIES
+                        || chunkBytes + entryBytes > OutboxBatches.MAX_BATCH_BYTES
+                        || !chunkGroups.add(entry.messageGroupId()))) {
+                    sendInOrder(chunkDestination, chunk, entitiesByEntryId, quarantined);
+                    chunk.clear();
+                    entitiesByEntryId.clear();
+                    chunkGroups.clear();
+                    chunkBytes = 0;
+                }
+                chunkDestination = destination;
+                chunkGroups.add(entry.messageGroupId());
+                chunkBytes += entryBytes;
+                chunk.add(entry);
+                entitiesByEntryId.put(entry.id(), entity);
+            }
+            if (!chunk.isEmpty()) {
+                sendInOrder(chunkDestination, chunk, entitiesByEntryId, quarantined);
+            }
+        } finally {
+            if (!quarantined.isEmpty()) {
+                quarantineRepository.saveAll(quarantined);
+                outboxRepository.deleteAllByIdInBatch(quarantined.stream().map(FlightOutboxQuarantine::getId).toList());
+                outboxMetrics.eventsQuarantined(quarantined.size());
+            }
+        }
+    }
+
+    private SendMessageBatchRequestEntry offloadInOrder(FlightOutbox entity, List<FlightOutboxQuarantine> quarantined)
+            throws InterruptedException {
+        while (true) {
+            try {
+                SendMessageBatchRequestEntry entry = claimCheck.offload(OutboxBatches.toEntry(entity));
+                return oversized(entity, entry, quarantined) ? null : entry;
+            } catch (RuntimeException e) {
+                if (attemptFailed(entity, e.toString(), true, quarantined)) {
+                    return null;
+                }
+                sleepUntil(entity.getNextAttemptAt());
+            }
+        }
+    }
+
+    private void sendInOrder(OutboxRoutes.Destination destination, List<SendMessageBatchRequestEntry> chunk,
+                             Map<String, FlightOutbox> entitiesByEntryId, List<FlightOutboxQuarantine> quarantined)
+            throws InterruptedException {
+        String queueUrl = getQueueUrl(destination.queueName());
+        List<SendMessageBatchRequestEntry> unsent = List.copyOf(chunk);
+        while (!unsent.isEmpty()) {
+            List<SendMessageBatchRequestEntry> entries = unsent;
+            long startNanos = System.nanoTime();
+            SendMessageBatchResponse response;
+            try {
+                response = sqsAsyncClient.sendMessageBatch(request -> request.queueUrl(queueUrl).entries(entries)).join();
+                outboxMetrics.batchSent(entries.size(), startNanos, true);
+            } catch (CompletionException e) {
+                outboxMetrics.batchSent(entries.size(), startNanos, false);
+                log.error("Error sending outbox events to SQS, they will be retried", e.getCause());
+                FlightOutbox first = entitiesByEntryId.get(entries.get(0).id());
+                boolean entryFault = entryFault(entries, e.getCause());
+                for (SendMessageBatchRequestEntry entry : entries) {
+                    if (attemptFailed(entitiesByEntryId.get(entry.id()), e.getCause().toString(), entryFault,
+                            quarantined)) {
+                        return; // only the event of a single-entry call can be quarantined here
+                    }
+                }
+                sleepUntil(first.getNextAttemptAt());
+                continue;
+            }
+            List<Long> acknowledged = new ArrayList<>(response.successful().size());
+            for (SendMessageBatchResultEntry successful : response.successful()) {
+                acknowledged.add(entitiesByEntryId.get(successful.id()).getId());
+            }
+            if (!acknowledged.isEmpty()) {
+                remove(acknowledged);
+            }
+            List<SendMessageBatchRequestEntry> retriable = new ArrayList<>();
+            Instant nextAttemptAt = Instant.MIN;
+            for (BatchResultErrorEntry failed : response.failed()) {
+                outboxMetrics.entryFailed(failed.senderFault());
+                FlightOutbox entity = entitiesByEntryId.get(failed.id());
+                if (!attemptFailed(entity, failed.code() + ": " + failed.message(), true, quarantined)) {
+                    entries.stream().filter(entry -> entry.id().equals(failed.id())).forEach(retriable::add);
+                    nextAttemptAt = entity.getNextAttemptAt().isAfter(nextAttemptAt) ? entity.getNextAttemptAt() : nextAttemptAt;
+                }
+            }
+            if (!retriable.isEmpty()) {
+                outboxMetrics.entriesRetried(retriable.size());
+                sleepUntil(nextAttemptAt);
+            }
+            unsent = retriable;
+        }
+    }
+
+    private static void sleepUntil(Instant instant) throws InterruptedException {
+        long delayMs = Duration.between(Instant.now(), instant).toMillis();
+        if (delayMs > 0) {
+            Thread.sleep(delayMs);
+        }
+    }
+
+    private void send(String queueUrl, Batch batch, Semaphore slots, BlockingQueue<BatchResult> acknowledgements) {
+        SendMessageBatchRequest sendMessageBatchRequest = SendMessageBatchRequest.builder()
+                .queueUrl(queueUrl)
+                .entries(batch.entries())
+                .build();
+        long startNanos = System.nanoTime();
+        sqsAsyncClient.sendMessageBatch(sendMessageBatchRequest)
+                .whenComplete((response, error) -> {
+                    slots.release();
+                    outboxMetrics.batchSent(batch.entries().size(), startNanos, error == null);
+                    acknowledgements.add(new BatchResult(batch, response, error));
+                });
+    }
+
+    private void acknowledge(BatchResult result, Map<String, FlightOutbox> entitiesByEntryId, Deque<Batch> unsent,
+                             List<FlightOutboxQuarantine> quarantined) {
+        Batch batch = result.batch();
+        if (result.error() != null) {
+            log.error("Error sending outbox events to SQS, they will be retried", result.error());
+            boolean entryFault = entryFault(batch.entries(), result.error());
+            for (SendMessageBatchRequestEntry entry : batch.entries()) {
+                attemptFailed(entitiesByEntryId.get(entry.id()), result.error().toString(), entryFault, quarantined);
+            }
+            return;
+        }
+        List<Long> acknowledged = new ArrayList<>(result.response().successful().size());
+        for (SendMessageBatchResultEntry successful : result.response().successful()) {
+            acknowledged.add(entitiesByEntryId.get(successful.id()).getId());
+        }
+        if (!acknowledged.isEmpty()) {
+            remove(acknowledged);
+        }
+
+        List<SendMessageBatchRequestEntry> retriable = new ArrayList<>();
+        for (BatchResultErrorEntry failed : result.response().failed()) {
+            outboxMetrics.entryFailed(failed.senderFault());
+            if (!failed.senderFault() && batch.attempt() < entryMaxAttempts) {
+                batch.entries().stream()
+                        .filter(entry -> entry.id().equals(failed.id()))
+                        .forEach(retriable::add);
+            } else {
+                attemptFailed(entitiesByEntryId.get(failed.id()), failed.code() + ": " + failed.message(), true,
+                        quarantined);
+            }
         }
+        if (!retriable.isEmpty()) {
+            outboxMetrics.entriesRetried(retriable.size());
+            unsent.add(new Batch(retriable, batch.attempt() + 1));
+        }
+    }
+
+    /**
+     * Quarantines the event of an entry SQS can never accept; returns whether it did.
+     */
+    private boolean oversized(FlightOutbox entity, SendMessageBatchRequestEntry entry,
+                              List<FlightOutboxQuarantine> quarantined) {
+        int entryBytes = OutboxBatches.sizeOf(entry);
+        if (entryBytes <= OutboxBatches.MAX_BATCH_BYTES) {
+            return false;
+        }
+        String error = "Entry of " + entryBytes + " bytes exceeds the SQS limit of " + OutboxBatches.MAX_BATCH_BYTES;
+        log.error("Outbox event " + entity.getId() + " can never be sent, moving it to quarantine: " + error);
+        quarantined.add(new FlightOutboxQuarantine(entity, error, Instant.now()));
+        return true;
+    }
+
+    /**
+     * Whether SQS rejected a whole call because of its only entry, rather than being unreachable or throttling.
+     */
+    private static boolean entryFault(List<SendMessageBatchRequestEntry> entries, Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        return entries.size() == 1 && cause instanceof AwsServiceException e
+                && e.statusCode() == 400 && !e.isThrottlingException();
+    }
+
+    /**
+     * Schedules the next attempt of an event; returns whether it was quarantined.
+     */
+    private boolean attemptFailed(FlightOutbox entity, String error, boolean ownFailure,
+                                  List<FlightOutboxQuarantine> quarantined) {
+        entity.setAttempts(entity.getAttempts() + 1);
+        if (ownFailure) {
+            entity.setFailures(entity.getFailures() + 1);
+            if (entity.getFailures() >= maxAttempts) {
+                log.error("Outbox event " + entity.getId() + " failed " + entity.getFailures() + " times, moving it "
+                        + "to quarantine. Last error: " + error);
+                quarantined.add(new FlightOutboxQuarantine(entity, error, Instant.now()));
+                return true;
+            }
+        }
+        long backoffMs = Math.min(initialBackoffMs << Math.min(entity.getAttempts() - 1, 30), maxBackoffMs);
+        entity.setNextAttemptAt(Instant.now().plusMillis(backoffMs));
+        if (ownFailure) {
+            log.warn("Outbox event " + entity.getId() + " failed (" + error + "), failure " + entity.getFailures()
+                    + " of " + maxAttempts + ". It will be retried in " + backoffMs + " ms.");
+        }
+        return false;
+    }
+
+    /**
+     * Removes published events; quarantined ones are always deleted.
+     */
+    private void remove(List<Long> ids) {
+        if (storageMode == OutboxStorageMode.PARTITIONED) {
+            outboxRepository.markPublished(ids, Instant.now());
+        } else {
+            outboxRepository.deleteAllByIdInBatch(ids);
+        }
+    }
+
+    private static boolean acquireSlot(Semaphore slots, boolean block) {
+        if (block) {
+            slots.acquireUninterruptibly();
+            return true;
+        }
+        return slots.tryAcquire();
+    }
+
+    private String getQueueUrl(String queueName) {
+        String queueUrl = queueUrls.get(queueName);
+        if (queueUrl == null) {
+            queueUrl = sqsAsyncClient.getQueueUrl(request -> request.queueName(queueName)).join().queueUrl();
+            queueUrls.put(queueName, queueUrl);
+        }
+        return queueUrl;
+    }
+
+    private static BatchResult takeUninterruptibly(BlockingQueue<BatchResult> acknowledgements) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return acknowledgements.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record Batch(List<SendMessageBatchRequestEntry> entries, int attempt) {
+    }
+
+    private record BatchResult(Batch batch, SendMessageBatchResponse response, Throwable error) {
     }
 }
@@ -0,0 +1,27 @@
+package com.amazonaws.samples.service;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Keeps blobs as objects of an S3 bucket.
+ */
+public class S3BlobStore implements BlobStore {
+    private final S3Client s3Client;
+    private final String bucket;
+
+    public S3BlobStore(S3Client s3Client, String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public void put(String key, byte[] data) {
+        s3Client.putObject(request -> request.bucket(bucket).key(key), RequestBody.fromBytes(data));
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return s3Client.getObjectAsBytes(request -> request.bucket(bucket).key(key)).asByteArray();
+    }
+}
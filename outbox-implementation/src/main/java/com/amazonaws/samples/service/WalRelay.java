@@ -0,0 +1,335 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.model.OutboxRelayCheckpoint;
+import com.amazonaws.samples.repository.OutboxRelayCheckpointRepository;
+import com.amazonaws.samples.repository.OutboxRepository;
+import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationSlotInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the outbox from the write-ahead log through logical replication.
+ */
+@Service
+@Log4j2
+public class WalRelay implements SmartLifecycle {
+    private static final long RECONNECT_DELAY_MS = 5_000;
+    private static final long IDLE_WAIT_MS = 10;
+    private static final String OUTBOX_TABLE = "flights_outbox";
+    private static final DateTimeFormatter TIMESTAMPTZ = new DateTimeFormatterBuilder()
+            .appendPattern("uuuu-MM-dd HH:mm:ss")
+            .optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).optionalEnd()
+            .appendOffset("+HH:mm", "+00")
+            .toFormatter();
+
+    private final QueueService queueService;
+    private final OutboxRepository outboxRepository;
+    private final OutboxRelayCheckpointRepository checkpointRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private volatile boolean running;
+    private Thread relayThread;
+
+    @Value("${outbox.relay.mode}")
+    private OutboxRelayMode relayMode;
+
+    @Value("${outbox.storage_mode}")
+    private OutboxStorageMode storageMode;
+
+    @Value("${outbox.wal.slot}")
+    private String slotName;
+
+    @Value("${outbox.wal.publication}")
+    private String publicationName;
+
+    @Value("${outbox.wal.status_interval_ms}")
+    private int statusIntervalMs;
+
+    @Value("${sqs.max_batch_size}")
+    private int maxBatchSize;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    public WalRelay(QueueService queueService, OutboxRepository outboxRepository,
+                    OutboxRelayCheckpointRepository checkpointRepository, JdbcTemplate jdbcTemplate,
+                    PlatformTransactionManager transactionManager) {
+        this.queueService = queueService;
+        this.outboxRepository = outboxRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public void start() {
+        if (relayMode != OutboxRelayMode.WAL) {
+            return;
+        }
+        running = true;
+        relayThread = new Thread(this::relay, "outbox-wal-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void relay() {
+        while (running) {
+            try (Connection connection = replicationConnection()) {
+                if (!lockSlot(connection)) {
+                    log.debug("Replication slot " + slotName + " is in use by another node, retrying");
+                    sleep(RECONNECT_DELAY_MS);
+                    continue;
+                }
+                createPublication();
+                createSlot(connection);
+                stream(connection);
+            } catch (SQLException e) {
+                if (running) {
+                    if ("55006".equals(e.getSQLState())) {
+                        log.debug("Replication slot " + slotName + " is in use by another node, retrying");
+                    } else {
+                        log.error("Error streaming the outbox from the write-ahead log, reconnecting", e);
+                    }
+                    sleep(RECONNECT_DELAY_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                if (running) {
+                    log.error("Error forwarding outbox events from the write-ahead log, reconnecting", e);
+                    sleep(RECONNECT_DELAY_MS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the session lock that makes this connection's node the only one setting up and streaming the slot.
+     */
+    private boolean lockSlot(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(hashtext(?))")) {
+            statement.setString(1, slotName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private void createPublication() {
+        Boolean publicationExists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_publication WHERE pubname = ?)", Boolean.class, publicationName);
+        if (!Boolean.TRUE.equals(publicationExists)) {
+            // Inserts into the daily partitions are published as inserts into the outbox table itself
+            String options = storageMode == OutboxStorageMode.PARTITIONED
+                    ? "publish = 'insert', publish_via_partition_root = true"
+                    : "publish = 'insert'";
+            jdbcTemplate.execute("CREATE PUBLICATION " + publicationName + " FOR TABLE " + OUTBOX_TABLE
+                    + " WITH (" + options + ")");
+            log.info("Created publication " + publicationName);
+        }
+    }
+
+    /**
+     * Creates the replication slot unless it exists with a checkpoint, which shows the events that predate it were
+     * published.
+     */
+    private void createSlot(Connection connection) throws SQLException, InterruptedException {
+        Boolean slotExists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_replication_slots WHERE slot_name = ?)", Boolean.class, slotName);
+        boolean checkpointed = checkpointRepository.existsById(slotName);
+        if (Boolean.TRUE.equals(slotExists) && checkpointed) {
+            return;
+        }
+        if (checkpointed) {
+            // Left by a slot dropped since, such as when going back to polling
+            checkpointRepository.deleteById(slotName);
+        }
+        if (Boolean.TRUE.equals(slotExists)) {
+            // A relay stopped before publishing the events committed before this slot: take a new snapshot
+            jdbcTemplate.queryForObject("SELECT pg_drop_replication_slot(?)", Object.class, slotName);
+            log.info("Dropped replication slot " + slotName + " to publish the events that predate it again");
+        }
+        ReplicationSlotInfo slot = connection.unwrap(PGConnection.class).getReplicationAPI()
+                .createReplicationSlot()
+                .logical()
+                .withSlotName(slotName)
+                .withOutputPlugin("pgoutput")
+                .make();
+        log.info("Created replication slot " + slotName + " at " + slot.getConsistentPoint());
+        // The snapshot exported with the slot sees exactly the transactions the slot does not stream
+        List<Long> pendingIds = snapshotTransaction.execute(status -> {
+            jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + slot.getSnapshotName() + "'");
+            return jdbcTemplate.queryForList(
+                    "SELECT id FROM " + OUTBOX_TABLE + " WHERE published_at IS NULL ORDER BY sequence_number", Long.class);
+        });
+        drainPendingEvents(pendingIds);
+        if (running) {
+            checkpointRepository.save(new OutboxRelayCheckpoint(slotName, slot.getConsistentPoint().asString(),
+                    Instant.now()));
+        }
+    }
+
+    /**
+     * Publishes the events committed before the slot, in order, before streaming the ones committed after it.
+     */
+    private void drainPendingEvents(List<Long> pendingIds) throws InterruptedException {
+        for (int from = 0; running && from < pendingIds.size(); from += maxBatchSize) {
+            List<FlightOutbox> events = new ArrayList<>(outboxRepository.findAllById(
+                    pendingIds.subList(from, Math.min(from + maxBatchSize, pendingIds.size()))));
+            events.sort(Comparator.comparing(FlightOutbox::getSequenceNumber));
+            queueService.forwardInOrder(events);
+        }
+        if (running && !pendingIds.isEmpty()) {
+            log.info("Published the " + pendingIds.size() + " outbox events committed before replication slot "
+                    + slotName);
+        }
+    }
+
+    private Connection replicationConnection() throws SQLException {
+        Properties properties = new Properties();
+        PGProperty.USER.set(properties, username);
+        PGProperty.PASSWORD.set(properties, password);
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(properties, "10");
+        PGProperty.REPLICATION.set(properties, "database");
+        PGProperty.PREFER_QUERY_MODE.set(properties, "simple");
+        return DriverManager.getConnection(url, properties);
+    }
+
+    private void stream(Connection connection) throws SQLException, InterruptedException {
+        LogSequenceNumber checkpoint = checkpointRepository.findById(slotName)
+                .map(saved -> LogSequenceNumber.valueOf(saved.getConfirmedLsn()))
+                .orElse(LogSequenceNumber.INVALID_LSN);
+        PGReplicationStream stream = connection.unwrap(PGConnection.class).getReplicationAPI()
+                .replicationStream()
+                .logical()
+                .withSlotName(slotName)
+                .withSlotOption("proto_version", 1)
+                .withSlotOption("publication_names", publicationName)
+                .withStartPosition(checkpoint)
+                .withStatusInterval(statusIntervalMs, TimeUnit.MILLISECONDS)
+                .start();
+        log.info("Streaming the outbox from replication slot " + slotName + " after " + checkpoint);
+
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        List<FlightOutbox> transaction = new ArrayList<>();
+        List<FlightOutbox> committed = new ArrayList<>();
+        LogSequenceNumber committedLsn = null;
+        while (running) {
+            ByteBuffer message = stream.readPending();
+            if (message == null) {
+                if (committedLsn != null) {
+                    forward(stream, committed, committedLsn);
+                    committedLsn = null;
+                } else {
+                    Thread.sleep(IDLE_WAIT_MS);
+                }
+                continue;
+            }
+            Object decoded = decoder.decode(message);
+            if (decoded instanceof PgOutputDecoder.Begin) {
+                transaction.clear();
+            } else if (decoded instanceof PgOutputDecoder.Insert insert && OUTBOX_TABLE.equals(insert.relation())) {
+                transaction.add(toEvent(insert.values()));
+            } else if (decoded instanceof PgOutputDecoder.Commit commit) {
+                committed.addAll(transaction);
+                transaction.clear();
+                committedLsn = LogSequenceNumber.valueOf(commit.endLsn());
+                if (committed.size() >= maxBatchSize) {
+                    forward(stream, committed, committedLsn);
+                    committedLsn = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forwards the transactions committed up to {@code committedLsn} and confirms it.
+     */
+    private void forward(PGReplicationStream stream, List<FlightOutbox> committed, LogSequenceNumber committedLsn)
+            throws SQLException, InterruptedException {
+        stream.setAppliedLSN(committedLsn);
+        if (committed.isEmpty()) {
+            stream.setFlushedLSN(committedLsn);
+            return;
+        }
+        queueService.forwardInOrder(committed);
+        committed.clear();
+        checkpointRepository.save(new OutboxRelayCheckpoint(slotName, committedLsn.asString(), Instant.now()));
+        stream.setFlushedLSN(committedLsn);
+        stream.forceUpdateStatus();
+    }
+
+    private static FlightOutbox toEvent(Map<String, String> row) {
+        String payload = row.get("encoded_payload");
+        FlightOutbox event = new FlightOutbox(row.get("aggregate_id"),
+                FlightOutbox.EventType.valueOf(row.get("event_type")),
+                payload == null ? null : HexFormat.of().parseHex(payload, 2, payload.length()),
+                row.get("content_type"), row.get("content_encoding"));
+        event.setId(Long.valueOf(row.get("id")));
+        String createdAt = row.get("created_at");
+        if (createdAt != null) {
+            event.setCreatedAt(OffsetDateTime.parse(createdAt, TIMESTAMPTZ).toInstant());
+        }
+        return event;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+-- Outbox table for outbox.storage_mode=partitioned, run on startup before Hibernate updates the schema.
+-- A regular flights_outbox table left by outbox.storage_mode=delete is kept: drain it and drop it first.
+-- OutboxPartitionManager then creates the daily partitions ahead of time and drops the expired ones.
+CREATE TABLE IF NOT EXISTS flights_outbox (
+    id               BIGINT                      NOT NULL,
+    sequence_number  BIGSERIAL,
+    aggregate_id     VARCHAR(255),
+    event_type       VARCHAR(255),
+    encoded_payload  BYTEA,
+    content_type     VARCHAR(255),
+    content_encoding VARCHAR(255),
+    created_at       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    published_at     TIMESTAMP(6) WITH TIME ZONE,
+    attempts         INTEGER                     NOT NULL DEFAULT 0,
+    failures         INTEGER                     NOT NULL DEFAULT 0,
+    next_attempt_at  TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Keep the relay scans on the unpublished rows only
+CREATE INDEX IF NOT EXISTS flights_outbox_pending_idx ON flights_outbox (id) WHERE published_at IS NULL;
+CREATE INDEX IF NOT EXISTS flights_outbox_aggregate_seq_idx ON flights_outbox (aggregate_id, sequence_number) WHERE published_at IS NULL;
+
+-- Catches rows outside of the pre-created daily partitions
+CREATE TABLE IF NOT EXISTS flights_outbox_default PARTITION OF flights_outbox DEFAULT;
@@ -0,0 +1,49 @@
+package com.amazonaws.samples;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Embedded Postgres started once for the test classes extending this one, each of which uses its own database.
+ */
+public abstract class EmbeddedPostgresTest {
+    private static EmbeddedPostgres postgres;
+
+    /**
+     * Points the datasource at the database {@code name}, for the {@code @DynamicPropertySource} of a test class.
+     */
+    protected static void datasource(DynamicPropertyRegistry registry, String name) {
+        registry.add("spring.datasource.url", () -> database(name));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    /**
+     * Creates the database {@code name} on the embedded Postgres if it does not exist, and returns its JDBC url.
+     */
+    protected static String database(String name) {
+        EmbeddedPostgres started = postgres();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(started.getPostgresDatabase());
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_database WHERE datname = ?)", Boolean.class, name);
+        if (!Boolean.TRUE.equals(exists)) {
+            jdbcTemplate.execute("CREATE DATABASE " + name);
+        }
+        return started.getJdbcUrl("postgres", name);
+    }
+
+    private static synchronized EmbeddedPostgres postgres() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.builder().setServerConfig("wal_level", "logical").start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return postgres;
+    }
+}
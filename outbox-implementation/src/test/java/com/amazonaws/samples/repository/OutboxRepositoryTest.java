@@ -0,0 +1,155 @@
+package com.amazonaws.samples.repository;
+
+import com.amazonaws.samples.EmbeddedPostgresTest;
+import com.amazonaws.samples.configuration.OutboxStorageConfiguration;
+import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.model.FlightOutbox.EventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(OutboxStorageConfiguration.class)
+class OutboxRepositoryTest extends EmbeddedPostgresTest {
+    private static final List<String> ALL_TYPES = List.of(EventType.FLIGHT_BOOKED.name(),
+            EventType.FLIGHT_CHANGED.name(), EventType.FLIGHT_CANCELLED.name());
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        datasource(registry, "outbox_repository");
+    }
+
+    @AfterEach
+    void emptyOutbox() {
+        outboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void outboxTableIsARegularTableIndexedByAggregate() {
+        assertThat(jdbcTemplate.queryForObject("SELECT relkind FROM pg_class WHERE relname = 'flights_outbox'",
+                String.class)).isEqualTo("r");
+        assertThat(jdbcTemplate.queryForObject("SELECT indexdef FROM pg_indexes WHERE indexname = ?", String.class,
+                "flights_outbox_aggregate_seq_idx")).endsWith("(aggregate_id, sequence_number)");
+    }
+
+    @Test
+    void claimsTheOldestPendingEventOfEachAggregate() {
+        FlightOutbox booked1 = record("1", EventType.FLIGHT_BOOKED);
+        FlightOutbox booked2 = record("2", EventType.FLIGHT_BOOKED);
+        FlightOutbox changed1 = record("1", EventType.FLIGHT_CHANGED);
+
+        assertThat(claim(ALL_TYPES, 10)).containsExactly(booked1.getId(), booked2.getId());
+
+        outboxRepository.deleteAllByIdInBatch(List.of(booked1.getId()));
+        assertThat(claim(ALL_TYPES, 10)).containsExactly(booked2.getId(), changed1.getId());
+    }
+
+    @Test
+    void eventsWaitForEarlierEventsOfOtherTypes() {
+        FlightOutbox booked = record("1", EventType.FLIGHT_BOOKED);
+        FlightOutbox cancelled = record("1", EventType.FLIGHT_CANCELLED);
+        List<String> cancellations = List.of(EventType.FLIGHT_CANCELLED.name());
+
+        assertThat(claim(cancellations, 10)).isEmpty();
+
+        outboxRepository.deleteAllByIdInBatch(List.of(booked.getId()));
+        assertThat(claim(cancellations, 10)).containsExactly(cancelled.getId());
+    }
+
+    @Test
+    void eventsWaitingForTheirNextAttemptHoldBackTheirAggregateOnly() {
+        FlightOutbox failed = new FlightOutbox("1", EventType.FLIGHT_BOOKED, payload(), "application/json", null);
+        failed.setNextAttemptAt(Instant.now().plusSeconds(60));
+        outboxRepository.saveAndFlush(failed);
+        record("1", EventType.FLIGHT_CHANGED);
+        FlightOutbox other = record("2", EventType.FLIGHT_BOOKED);
+
+        assertThat(claim(ALL_TYPES, 10)).containsExactly(other.getId());
+    }
+
+    @Test
+    void publishedEventsNoLongerHoldBackTheirAggregate() {
+        FlightOutbox booked = record("1", EventType.FLIGHT_BOOKED);
+        FlightOutbox changed = record("1", EventType.FLIGHT_CHANGED);
+
+        outboxRepository.markPublished(List.of(booked.getId()), Instant.now());
+        assertThat(claim(ALL_TYPES, 10)).containsExactly(changed.getId());
+    }
+
+    @Test
+    void concurrentClaimsAreDisjoint() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            record(String.valueOf(i), EventType.FLIGHT_BOOKED);
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() -> transaction.execute(status -> {
+            List<Long> ids = ids(outboxRepository.claimBatch(ALL_TYPES, 2));
+            claimed.countDown();
+            await(release);
+            return ids;
+        }));
+        assertThat(claimed.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Long> second = claim(ALL_TYPES, 10);
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).hasSize(2).doesNotContainAnyElementsOf(second);
+        assertThat(second).hasSize(2);
+    }
+
+    private FlightOutbox record(String aggregateId, EventType eventType) {
+        return outboxRepository.saveAndFlush(new FlightOutbox(aggregateId, eventType, payload(), "application/json", null));
+    }
+
+    private List<Long> claim(List<String> eventTypes, int limit) {
+        return new TransactionTemplate(transactionManager)
+                .execute(status -> ids(outboxRepository.claimBatch(eventTypes, limit)));
+    }
+
+    private static List<Long> ids(List<FlightOutbox> events) {
+        return events.stream().map(FlightOutbox::getId).toList();
+    }
+
+    private static byte[] payload() {
+        return "{}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
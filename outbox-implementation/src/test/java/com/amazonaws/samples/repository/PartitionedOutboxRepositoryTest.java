@@ -0,0 +1,110 @@
+package com.amazonaws.samples.repository;
+
+import com.amazonaws.samples.EmbeddedPostgresTest;
+import com.amazonaws.samples.configuration.OutboxStorageConfiguration;
+import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.model.FlightOutbox.EventType;
+import com.amazonaws.samples.service.OutboxPartitionManager;
+import com.amazonaws.samples.service.OutboxStorageMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {"outbox.storage_mode=partitioned", "spring.jpa.hibernate.ddl-auto=update"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(OutboxStorageConfiguration.class)
+class PartitionedOutboxRepositoryTest extends EmbeddedPostgresTest {
+    private static final List<String> ALL_TYPES = List.of(EventType.FLIGHT_BOOKED.name(),
+            EventType.FLIGHT_CHANGED.name(), EventType.FLIGHT_CANCELLED.name());
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        datasource(registry, "partitioned_outbox");
+    }
+
+    @BeforeEach
+    void createPartitions() {
+        OutboxPartitionManager partitionManager = new OutboxPartitionManager(jdbcTemplate);
+        ReflectionTestUtils.setField(partitionManager, "storageMode", OutboxStorageMode.PARTITIONED);
+        ReflectionTestUtils.setField(partitionManager, "precreateDays", 1);
+        ReflectionTestUtils.setField(partitionManager, "retentionDays", 3);
+        partitionManager.maintainPartitions();
+    }
+
+    @AfterEach
+    void emptyOutbox() {
+        outboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void outboxTableIsPartitioned() {
+        assertThat(jdbcTemplate.queryForObject("SELECT relkind FROM pg_class WHERE relname = 'flights_outbox'",
+                String.class)).isEqualTo("p");
+    }
+
+    @Test
+    void eventsAreStoredInTheirDailyPartition() {
+        FlightOutbox booked = record("1", EventType.FLIGHT_BOOKED);
+
+        String partition = jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM flights_outbox WHERE id = ?", String.class, booked.getId());
+        assertThat(partition).isEqualTo("flights_outbox_p"
+                + DateTimeFormatter.BASIC_ISO_DATE.format(LocalDate.now(ZoneOffset.UTC)));
+    }
+
+    @Test
+    void publishedEventsAreKeptButNoLongerClaimed() {
+        FlightOutbox booked = record("1", EventType.FLIGHT_BOOKED);
+        FlightOutbox changed = record("1", EventType.FLIGHT_CHANGED);
+        assertThat(claim()).containsExactly(booked.getId());
+
+        assertThat(outboxRepository.markPublished(List.of(booked.getId()), Instant.now())).isEqualTo(1);
+
+        assertThat(claim()).containsExactly(changed.getId());
+        assertThat(outboxRepository.findById(booked.getId()))
+                .hasValueSatisfying(event -> assertThat(event.getPublishedAt()).isNotNull());
+    }
+
+    private FlightOutbox record(String aggregateId, EventType eventType) {
+        FlightOutbox event = new FlightOutbox(aggregateId, eventType, "{}".getBytes(StandardCharsets.UTF_8),
+                "application/json", null);
+        event.setCreatedAt(Instant.now());
+        return outboxRepository.saveAndFlush(event);
+    }
+
+    private List<Long> claim() {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                outboxRepository.claimBatch(ALL_TYPES, 10).stream().map(FlightOutbox::getId).toList());
+    }
+}
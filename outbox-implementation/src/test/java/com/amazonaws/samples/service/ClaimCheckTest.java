@@ -0,0 +1,102 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.FlightOutbox;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class ClaimCheckTest {
+    private static final int THRESHOLD = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sendsSmallEntriesInline() {
+        SendMessageBatchRequestEntry entry = entry(json(100), "application/json");
+
+        assertThat(claimCheck(true).offload(entry)).isSameAs(entry);
+    }
+
+    @Test
+    void sendsEveryEntryInlineWithoutBlobStore() {
+        SendMessageBatchRequestEntry entry = entry(json(10 * THRESHOLD), "application/json");
+
+        assertThat(claimCheck(false).offload(entry)).isSameAs(entry);
+    }
+
+    @Test
+    void offloadsLargeBodiesAndResolvesThem() {
+        ClaimCheck claimCheck = claimCheck(true);
+        SendMessageBatchRequestEntry entry = entry(json(2 * THRESHOLD), "application/json");
+
+        SendMessageBatchRequestEntry offloaded = claimCheck.offload(entry);
+
+        assertThat(offloaded.messageBody()).isEqualTo("flights-outbox/7");
+        assertThat(offloaded.messageAttributes()).containsKey(ClaimCheck.CLAIM_CHECK_ATTRIBUTE);
+        Message resolved = claimCheck.resolve(received(offloaded));
+        assertThat(resolved.body()).isEqualTo(entry.messageBody());
+    }
+
+    @Test
+    void offloadsLargeBinaryPayloadsAndResolvesThem() {
+        ClaimCheck claimCheck = claimCheck(true);
+        SendMessageBatchRequestEntry entry = entry(json(2 * THRESHOLD), "application/cbor");
+
+        SendMessageBatchRequestEntry offloaded = claimCheck.offload(entry);
+
+        assertThat(offloaded.messageAttributes()).doesNotContainKey(PayloadCodec.PAYLOAD_ATTRIBUTE);
+        assertThat(OutboxBatches.sizeOf(offloaded)).isLessThan(THRESHOLD);
+        Message resolved = claimCheck.resolve(received(offloaded));
+        assertThat(resolved.body()).isEqualTo(PayloadCodec.BINARY_PAYLOAD_BODY);
+        assertThat(resolved.messageAttributes().get(PayloadCodec.PAYLOAD_ATTRIBUTE).binaryValue())
+                .isEqualTo(entry.messageAttributes().get(PayloadCodec.PAYLOAD_ATTRIBUTE).binaryValue());
+    }
+
+    @Test
+    void refusesClaimChecksWithoutBlobStore() {
+        SendMessageBatchRequestEntry offloaded = claimCheck(true).offload(entry(json(2 * THRESHOLD), "application/json"));
+
+        assertThatIllegalStateException().isThrownBy(() -> claimCheck(false).resolve(received(offloaded)));
+    }
+
+    @Test
+    void refusesThresholdsTheSqsLimitWouldReject() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new ClaimCheck(beans.getBeanProvider(BlobStore.class),
+                OutboxBatches.MAX_BATCH_BYTES)).withMessageContaining("outbox.claim_check.threshold_bytes");
+    }
+
+    private ClaimCheck claimCheck(boolean withBlobStore) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (withBlobStore) {
+            beans.addBean("blobStore", new FileSystemBlobStore(directory));
+        }
+        return new ClaimCheck(beans.getBeanProvider(BlobStore.class), THRESHOLD);
+    }
+
+    private static SendMessageBatchRequestEntry entry(String payload, String contentType) {
+        FlightOutbox event = new FlightOutbox("1", FlightOutbox.EventType.FLIGHT_BOOKED,
+                payload.getBytes(StandardCharsets.UTF_8), contentType, null);
+        event.setId(7L);
+        return OutboxBatches.toEntry(event);
+    }
+
+    private static String json(int length) {
+        return "{\"note\":\"" + "x".repeat(length) + "\"}";
+    }
+
+    private static Message received(SendMessageBatchRequestEntry entry) {
+        return Message.builder().body(entry.messageBody()).messageAttributes(entry.messageAttributes()).build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.amazonaws.samples.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class FileSystemBlobStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesBlobsUnderTheirKey() {
+        FileSystemBlobStore blobStore = new FileSystemBlobStore(directory);
+
+        blobStore.put("flights-outbox/1", new byte[]{1, 2, 3});
+        blobStore.put("flights-outbox/1", new byte[]{4});
+
+        assertThat(blobStore.get("flights-outbox/1")).containsExactly(4);
+        assertThat(Files.exists(directory.resolve("flights-outbox/1"))).isTrue();
+    }
+
+    @Test
+    void rejectsKeysOutsideTheDirectory() {
+        FileSystemBlobStore blobStore = new FileSystemBlobStore(directory.resolve("blobs"));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> blobStore.put("../escaped", new byte[1]));
+        assertThatIllegalArgumentException().isThrownBy(() -> blobStore.get("flights-outbox/../../escaped"));
+        assertThatIllegalArgumentException().isThrownBy(() -> blobStore.get(directory.resolve("other").toString()));
+        assertThatIllegalArgumentException().isThrownBy(() -> blobStore.get("."));
+        assertThat(Files.exists(directory.resolve("escaped"))).isFalse();
+    }
+}
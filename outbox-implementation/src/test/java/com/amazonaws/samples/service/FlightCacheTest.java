@@ -0,0 +1,98 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.Flight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, Optional<Flight>> loader = id -> {
+        loads.incrementAndGet();
+        return Optional.of(flight(id));
+    };
+
+    @Test
+    void servesCachedFlightsUntilTheyChange() {
+        FlightCache cache = cache(10, 300, true);
+
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+        assertThat(loads).hasValue(1);
+
+        cache.invalidate(List.of(1L));
+        cache.get(1L, loader);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void doesNotCacheLoadsOverlappingAChange() {
+        FlightCache cache = cache(10, 300, true);
+
+        cache.get(1L, id -> {
+            cache.invalidate(List.of(id));
+            return Optional.of(flight(id));
+        });
+        cache.get(1L, loader);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyReadFlights() {
+        FlightCache cache = cache(2, 300, true);
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+        cache.get(1L, loader);
+        cache.get(3L, loader);
+
+        cache.get(1L, loader);
+        assertThat(loads).hasValue(3);
+        cache.get(2L, loader);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void expiresFlightsAfterTheirTtl() {
+        FlightCache cache = cache(10, 0, true);
+
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void alwaysLoadsFlightsWithoutNotifications() {
+        FlightCache cache = cache(10, 300, false);
+
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void doesNotCacheMissingFlights() {
+        FlightCache cache = cache(10, 300, true);
+
+        assertThat(cache.get(1L, id -> Optional.empty())).isEmpty();
+        assertThat(cache.get(1L, loader)).isPresent();
+    }
+
+    private static FlightCache cache(int maxSize, long ttlSeconds, boolean notifyEnabled) {
+        return new FlightCache(maxSize, ttlSeconds, notifyEnabled, new SimpleMeterRegistry());
+    }
+
+    private static Flight flight(long id) {
+        Flight flight = new Flight();
+        flight.setId(id);
+        return flight;
+    }
+}
@@ -0,0 +1,92 @@
+package com.amazonaws.samples.service;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxBatchesTest {
+
+    @Test
+    void chunksHoldAtMostTenEntries() {
+        List<List<SendMessageBatchRequestEntry>> chunks = OutboxBatches.chunk(entries(25, 10),
+                OutboxBatches.MAX_BATCH_ENTRIES, OutboxBatches.MAX_BATCH_BYTES);
+
+        assertThat(chunks).extracting(List::size).containsExactly(10, 10, 5);
+    }
+
+    @Test
+    void chunksStayWithinTheByteLimit() {
+        List<SendMessageBatchRequestEntry> entries = entries(6, 100 * 1024);
+
+        List<List<SendMessageBatchRequestEntry>> chunks = OutboxBatches.chunk(entries,
+                OutboxBatches.MAX_BATCH_ENTRIES, OutboxBatches.MAX_BATCH_BYTES);
+
+        assertThat(chunks).extracting(List::size).containsExactly(2, 2, 2);
+        assertThat(chunks.stream().flatMap(List::stream).toList()).isEqualTo(entries);
+    }
+
+    @Test
+    void chunksFillUpToExactlyTheByteLimit() {
+        List<List<SendMessageBatchRequestEntry>> chunks = OutboxBatches.chunk(entries(5, 128 * 1024),
+                OutboxBatches.MAX_BATCH_ENTRIES, OutboxBatches.MAX_BATCH_BYTES);
+
+        assertThat(chunks).extracting(List::size).containsExactly(2, 2, 1);
+    }
+
+    @Test
+    void oversizedEntriesGetAChunkOfTheirOwn() {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(entries(1, 10));
+        entries.addAll(entries(1, 300 * 1024));
+        entries.addAll(entries(1, 10));
+
+        List<List<SendMessageBatchRequestEntry>> chunks = OutboxBatches.chunk(entries,
+                OutboxBatches.MAX_BATCH_ENTRIES, OutboxBatches.MAX_BATCH_BYTES);
+
+        assertThat(chunks).extracting(List::size).containsExactly(1, 1, 1);
+    }
+
+    @Test
+    void sizeCountsTheBodyAndAttributesInUtf8() {
+        String body = "aé€🚀";
+        SendMessageBatchRequestEntry entry = SendMessageBatchRequestEntry.builder()
+                .id("1")
+                .messageBody(body)
+                .messageAttributes(Map.of(
+                        "eventType", MessageAttributeValue.builder().dataType("String").stringValue("FLIGHT_BOOKED").build(),
+                        "payload", MessageAttributeValue.builder().dataType("Binary")
+                                .binaryValue(SdkBytes.fromByteArray(new byte[7])).build()))
+                .build();
+
+        int expected = body.getBytes(StandardCharsets.UTF_8).length
+                + "eventType".length() + "String".length() + "FLIGHT_BOOKED".length()
+                + "payload".length() + "Binary".length() + 7;
+        assertThat(OutboxBatches.sizeOf(entry)).isEqualTo(expected);
+    }
+
+    @Test
+    void utf8LengthMatchesEncoding() {
+        String text = "Zürich → 東京 🛫";
+
+        assertThat(OutboxBatches.utf8Length(text)).isEqualTo(text.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static List<SendMessageBatchRequestEntry> entries(int count, int bodyBytes) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(SendMessageBatchRequestEntry.builder()
+                    .id(String.valueOf(i))
+                    .messageBody("x".repeat(bodyBytes))
+                    .messageAttributes(Map.of())
+                    .build());
+        }
+        return entries;
+    }
+}
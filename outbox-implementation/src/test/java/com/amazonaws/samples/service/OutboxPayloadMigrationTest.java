@@ -0,0 +1,79 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.EmbeddedPostgresTest;
+import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.repository.OutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(OutboxPayloadMigration.class)
+class OutboxPayloadMigrationTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private OutboxPayloadMigration migration;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        datasource(registry, "outbox_payload_migration");
+    }
+
+    @AfterEach
+    void emptyOutbox() {
+        jdbcTemplate.execute("ALTER TABLE flights_outbox DROP COLUMN IF EXISTS payload");
+        outboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void movesLegacyPayloadsAndDropsTheirColumn() {
+        jdbcTemplate.execute("ALTER TABLE flights_outbox ADD COLUMN payload json");
+        jdbcTemplate.update("""
+                INSERT INTO flights_outbox (id, aggregate_id, event_type, payload, attempts, created_at)
+                VALUES (nextval('outbox_seq'), '1', 'FLIGHT_BOOKED', '{"id":1}'::json, 0, now())""");
+
+        migration.migrate();
+
+        List<FlightOutbox> events = outboxRepository.findAll();
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(new String(event.getPayload(), StandardCharsets.UTF_8)).isEqualTo("{\"id\":1}");
+            assertThat(event.getContentType()).isEqualTo("application/json");
+            assertThat(OutboxBatches.toEntry(event).messageBody()).isEqualTo("{\"id\":1}");
+        });
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM information_schema.columns
+                WHERE table_name = 'flights_outbox' AND column_name = 'payload'""", Integer.class)).isZero();
+    }
+
+    @Test
+    void leavesCurrentTablesAlone() {
+        FlightOutbox event = outboxRepository.saveAndFlush(new FlightOutbox("1", FlightOutbox.EventType.FLIGHT_BOOKED,
+                new byte[]{1, 2}, "application/cbor", null));
+
+        migration.migrate();
+
+        assertThat(outboxRepository.findById(event.getId())).hasValueSatisfying(saved ->
+                assertThat(saved.getPayload()).containsExactly(1, 2));
+    }
+}
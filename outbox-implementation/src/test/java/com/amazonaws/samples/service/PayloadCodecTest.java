@@ -0,0 +1,74 @@
+package com.amazonaws.samples.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadCodecTest {
+    private static final Map<String, Object> FLIGHT = Map.of("id", 42, "departureAirport", "Paris",
+            "arrivalAirport", "London");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @CsvSource({"JSON, false", "JSON, true", "SMILE, false", "SMILE, true", "CBOR, false", "CBOR, true"})
+    void decodesWhatItSends(PayloadFormat format, boolean gzip) {
+        PayloadCodec codec = new PayloadCodec(objectMapper, format, gzip);
+        PayloadCodec.EncodedPayload encoded = codec.encode(FLIGHT);
+
+        JsonNode decoded = codec.decode(message(encoded));
+
+        assertThat(decoded).isEqualTo(objectMapper.valueToTree(FLIGHT));
+    }
+
+    @Test
+    void sendsUncompressedJsonAsTheBody() {
+        PayloadCodec.EncodedPayload encoded = new PayloadCodec(objectMapper, PayloadFormat.JSON, false).encode(FLIGHT);
+
+        assertThat(PayloadCodec.messageBody(encoded.data(), encoded.contentType(), encoded.contentEncoding()))
+                .isEqualTo(new String(encoded.data(), StandardCharsets.UTF_8));
+        assertThat(PayloadCodec.messageAttributes(encoded.data(), encoded.contentType(), encoded.contentEncoding()))
+                .doesNotContainKey(PayloadCodec.PAYLOAD_ATTRIBUTE);
+    }
+
+    @Test
+    void sendsBinaryPayloadsAsIsInTheirAttribute() {
+        PayloadCodec.EncodedPayload encoded = new PayloadCodec(objectMapper, PayloadFormat.CBOR, false).encode(FLIGHT);
+
+        assertThat(PayloadCodec.messageBody(encoded.data(), encoded.contentType(), encoded.contentEncoding()))
+                .isEqualTo(PayloadCodec.BINARY_PAYLOAD_BODY);
+        assertThat(PayloadCodec.messageAttributes(encoded.data(), encoded.contentType(), encoded.contentEncoding())
+                .get(PayloadCodec.PAYLOAD_ATTRIBUTE).binaryValue().asByteArray()).isEqualTo(encoded.data());
+    }
+
+    @Test
+    void readsBase64BodiesOfEarlierVersions() {
+        PayloadCodec codec = new PayloadCodec(objectMapper, PayloadFormat.SMILE, false);
+        PayloadCodec.EncodedPayload encoded = codec.encode(FLIGHT);
+        Message message = Message.builder()
+                .body(Base64.getEncoder().encodeToString(encoded.data()))
+                .messageAttributes(Map.of(PayloadCodec.CONTENT_TYPE_ATTRIBUTE,
+                        MessageAttributeValue.builder().dataType("String").stringValue(encoded.contentType()).build()))
+                .build();
+
+        assertThat(codec.decode(message)).isEqualTo(objectMapper.valueToTree(FLIGHT));
+    }
+
+    private static Message message(PayloadCodec.EncodedPayload encoded) {
+        return Message.builder()
+                .body(PayloadCodec.messageBody(encoded.data(), encoded.contentType(), encoded.contentEncoding()))
+                .messageAttributes(PayloadCodec.messageAttributes(encoded.data(), encoded.contentType(),
+                        encoded.contentEncoding()))
+                .build();
+    }
+}
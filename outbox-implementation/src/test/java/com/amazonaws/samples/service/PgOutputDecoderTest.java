@@ -0,0 +1,144 @@
+package com.amazonaws.samples.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PgOutputDecoderTest {
+    private static final int RELATION_ID = 16385;
+
+    private final PgOutputDecoder decoder = new PgOutputDecoder();
+
+    @Test
+    void decodesBegin() throws IOException {
+        Message begin = new Message('B').writeLong(0x16B3748L).writeLong(0L).writeInt(731);
+
+        assertThat(decoder.decode(begin.buffer())).isInstanceOf(PgOutputDecoder.Begin.class);
+    }
+
+    @Test
+    void decodesTheEndLsnOfCommit() throws IOException {
+        Message commit = new Message('C').writeByte(0).writeLong(0x16B3748L).writeLong(0x16B3778L).writeLong(0L);
+
+        assertThat(decoder.decode(commit.buffer())).isEqualTo(new PgOutputDecoder.Commit(0x16B3778L));
+    }
+
+    @Test
+    void namesTheColumnsOfInsertsAfterTheirRelation() throws IOException {
+        assertThat(decoder.decode(relation("id", "aggregate_type", "encoded_payload"))).isNull();
+
+        Message insert = new Message('I').writeInt(RELATION_ID).writeByte('N').writeShort(3)
+                .writeText("42").writeText("Flight").writeText("\\x7b7d");
+
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("id", "42");
+        values.put("aggregate_type", "Flight");
+        values.put("encoded_payload", "\\x7b7d");
+        assertThat(decoder.decode(insert.buffer())).isEqualTo(new PgOutputDecoder.Insert("flights_outbox", values));
+    }
+
+    @Test
+    void decodesNullAndUnchangedToastColumnsAsNull() throws IOException {
+        decoder.decode(relation("id", "published_at", "encoded_payload"));
+
+        Message insert = new Message('I').writeInt(RELATION_ID).writeByte('N').writeShort(3)
+                .writeText("42").writeByte('n').writeByte('u');
+
+        PgOutputDecoder.Insert decoded = (PgOutputDecoder.Insert) decoder.decode(insert.buffer());
+        assertThat(decoded.values()).containsEntry("id", "42")
+                .containsEntry("published_at", null)
+                .containsEntry("encoded_payload", null);
+    }
+
+    @Test
+    void decodesMultiByteText() throws IOException {
+        decoder.decode(relation("departure_airport"));
+
+        Message insert = new Message('I').writeInt(RELATION_ID).writeByte('N').writeShort(1).writeText("Zürich");
+
+        PgOutputDecoder.Insert decoded = (PgOutputDecoder.Insert) decoder.decode(insert.buffer());
+        assertThat(decoded.values()).containsEntry("departure_airport", "Zürich");
+    }
+
+    @Test
+    void rejectsInsertsIntoUndescribedRelations() throws IOException {
+        Message insert = new Message('I').writeInt(RELATION_ID).writeByte('N').writeShort(1).writeText("42");
+
+        assertThatThrownBy(() -> decoder.decode(insert.buffer())).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void ignoresOtherMessages() throws IOException {
+        Message update = new Message('U').writeInt(RELATION_ID);
+
+        assertThat(decoder.decode(update.buffer())).isNull();
+    }
+
+    private static ByteBuffer relation(String... columns) throws IOException {
+        Message relation = new Message('R').writeInt(RELATION_ID).writeString("public").writeString("flights_outbox")
+                .writeByte('d').writeShort(columns.length);
+        for (String column : columns) {
+            relation.writeByte(0).writeString(column).writeInt(25).writeInt(-1);
+        }
+        return relation.buffer();
+    }
+
+    /**
+     * Writes a message the way {@code pgoutput} does: big-endian integers and null-terminated strings.
+     */
+    private static final class Message {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        Message(char type) throws IOException {
+            out.writeByte(type);
+        }
+
+        Message writeByte(int value) throws IOException {
+            out.writeByte(value);
+            return this;
+        }
+
+        Message writeShort(int value) throws IOException {
+            out.writeShort(value);
+            return this;
+        }
+
+        Message writeInt(int value) throws IOException {
+            out.writeInt(value);
+            return this;
+        }
+
+        Message writeLong(long value) throws IOException {
+            out.writeLong(value);
+            return this;
+        }
+
+        Message writeString(String value) throws IOException {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+            out.writeByte(0);
+            return this;
+        }
+
+        Message writeText(String value) throws IOException {
+            byte[] text = value.getBytes(StandardCharsets.UTF_8);
+            out.writeByte('t');
+            out.writeInt(text.length);
+            out.write(text);
+            return this;
+        }
+
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+}
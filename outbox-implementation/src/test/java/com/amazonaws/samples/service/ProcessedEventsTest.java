@@ -0,0 +1,78 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.EmbeddedPostgresTest;
+import com.amazonaws.samples.model.ProcessedEvent;
+import com.amazonaws.samples.repository.ProcessedEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "sqs.consumer.idempotency.retention_days=7")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ProcessedEvents.class)
+class ProcessedEventsTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private ProcessedEvents processedEvents;
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        datasource(registry, "processed_events");
+    }
+
+    @AfterEach
+    void forgetProcessedEvents() {
+        processedEventRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void findsTheRecordedIdsOnly() {
+        processedEvents.recordProcessed(List.of("1", "2"));
+
+        assertThat(processedEvents.findProcessed(List.of("1", "2", "3"))).containsExactlyInAnyOrder("1", "2");
+    }
+
+    @Test
+    void recordingAnIdAgainIsIgnored() {
+        processedEvents.recordProcessed(List.of("1"));
+        processedEvents.recordProcessed(List.of("1", "2"));
+
+        assertThat(processedEventRepository.findAll()).extracting(ProcessedEvent::getId)
+                .containsExactlyInAnyOrder("1", "2");
+    }
+
+    @Test
+    void recentlyProcessedIdsAreFoundWithoutTheDatabase() {
+        processedEvents.recordProcessed(List.of("1"));
+        processedEventRepository.deleteAllInBatch();
+
+        assertThat(processedEvents.findProcessed(List.of("1"))).containsExactly("1");
+    }
+
+    @Test
+    void idsProcessedBeforeTheRetentionArePurged() {
+        processedEventRepository.save(new ProcessedEvent("old", Instant.now().minus(Duration.ofDays(8))));
+        processedEventRepository.save(new ProcessedEvent("recent", Instant.now().minus(Duration.ofDays(6))));
+
+        processedEvents.purgeExpired();
+
+        assertThat(processedEventRepository.findAll()).extracting(ProcessedEvent::getId).containsExactly("recent");
+    }
+}
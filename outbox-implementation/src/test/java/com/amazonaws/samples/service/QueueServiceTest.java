@@ -0,0 +1,173 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.model.FlightOutbox.EventType;
+import com.amazonaws.samples.repository.OutboxQuarantineRepository;
+import com.amazonaws.samples.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueueServiceTest {
+    private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+    private final OutboxQuarantineRepository quarantineRepository = mock(OutboxQuarantineRepository.class);
+    private final SqsAsyncClient sqsAsyncClient = mock(SqsAsyncClient.class);
+    private final ClaimCheck claimCheck = mock(ClaimCheck.class);
+    private final OutboxRoutes outboxRoutes = new OutboxRoutes(new MockEnvironment(), "flights");
+    private QueueService queueService;
+
+    @BeforeEach
+    void setUp() {
+        queueService = new QueueService(outboxRepository, quarantineRepository, sqsAsyncClient,
+                mock(OutboxMetrics.class), claimCheck, outboxRoutes, 2);
+        ReflectionTestUtils.setField(queueService, "entryMaxAttempts", 1);
+        ReflectionTestUtils.setField(queueService, "maxAttempts", 1);
+        ReflectionTestUtils.setField(queueService, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(queueService, "maxBackoffMs", 1L);
+        ReflectionTestUtils.setField(queueService, "storageMode", OutboxStorageMode.PARTITIONED);
+        when(claimCheck.offload(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sqsAsyncClient.getQueueUrl(any(Consumer.class))).thenReturn(CompletableFuture.completedFuture(
+                GetQueueUrlResponse.builder().queueUrl("https://sqs/flights").build()));
+    }
+
+    @Test
+    void partitionedModeMarksPublishedEventsAndDeletesQuarantinedOnes() {
+        when(outboxRepository.claimBatch(anyCollection(), eq(10)))
+                .thenReturn(List.of(event(1L, "1"), event(2L, "2")));
+        when(sqsAsyncClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder()
+                        .successful(SendMessageBatchResultEntry.builder().id("1").build())
+                        .failed(BatchResultErrorEntry.builder().id("2").senderFault(true).code("InvalidMessage").build())
+                        .build()));
+
+        queueService.forwardEventsToSQS(outboxRoutes.destinations().get(0), 10);
+
+        verify(outboxRepository).markPublished(eq(List.of(1L)), any());
+        verify(quarantineRepository).saveAll(anyList());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(2L));
+        verify(outboxRepository, never()).markPublished(eq(List.of(2L)), any());
+    }
+
+    @Test
+    void batchFailuresDelayButNeverQuarantineAnEvent() {
+        ReflectionTestUtils.setField(queueService, "maxAttempts", 2);
+        FlightOutbox event = event(1L, "1");
+        when(outboxRepository.claimBatch(anyCollection(), eq(10))).thenReturn(List.of(event));
+        when(sqsAsyncClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(SdkClientException.create("SQS is unreachable")));
+
+        for (int run = 0; run < 3; run++) {
+            queueService.forwardEventsToSQS(outboxRoutes.destinations().get(0), 10);
+        }
+
+        assertThat(event.getAttempts()).isEqualTo(3);
+        assertThat(event.getFailures()).isZero();
+        assertThat(event.getNextAttemptAt()).isNotNull();
+        verify(quarantineRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void eventsAreQuarantinedAfterTheirOwnFailuresOnly() {
+        ReflectionTestUtils.setField(queueService, "maxAttempts", 2);
+        FlightOutbox event = event(1L, "1");
+        event.setAttempts(5);
+        when(outboxRepository.claimBatch(anyCollection(), eq(10))).thenReturn(List.of(event));
+        when(sqsAsyncClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder()
+                        .failed(BatchResultErrorEntry.builder().id("1").senderFault(true).code("InvalidMessage").build())
+                        .build()));
+
+        queueService.forwardEventsToSQS(outboxRoutes.destinations().get(0), 10);
+        assertThat(event.getFailures()).isEqualTo(1);
+        verify(quarantineRepository, never()).saveAll(anyList());
+
+        queueService.forwardEventsToSQS(outboxRoutes.destinations().get(0), 10);
+        assertThat(event.getFailures()).isEqualTo(2);
+        verify(quarantineRepository).saveAll(anyList());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void singleEntryCallsRejectedBySqsCountAsFailuresOfTheirEvent() {
+        FlightOutbox event = event(1L, "1");
+        when(outboxRepository.claimBatch(anyCollection(), eq(10))).thenReturn(List.of(event));
+        when(sqsAsyncClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(SqsException.builder().statusCode(400)
+                        .awsErrorDetails(AwsErrorDetails.builder().errorCode("BatchRequestTooLong").build())
+                        .build()));
+
+        queueService.forwardEventsToSQS(outboxRoutes.destinations().get(0), 10);
+
+        assertThat(event.getFailures()).isEqualTo(1);
+        verify(quarantineRepository).saveAll(anyList());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void oversizedEntriesAreQuarantinedWithoutBeingSent() {
+        when(outboxRepository.claimBatch(anyCollection(), eq(10))).thenReturn(List.of(oversizedEvent(1L, "1")));
+
+        queueService.forwardEventsToSQS(outboxRoutes.destinations().get(0), 10);
+
+        verify(sqsAsyncClient, never()).sendMessageBatch(any(SendMessageBatchRequest.class));
+        verify(quarantineRepository).saveAll(anyList());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void oversizedEntriesDoNotHoldBackTheWalRelay() throws InterruptedException {
+        when(sqsAsyncClient.sendMessageBatch(any(Consumer.class)))
+                .thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder()
+                        .successful(SendMessageBatchResultEntry.builder().id("2").build())
+                        .build()));
+
+        queueService.forwardInOrder(List.of(oversizedEvent(1L, "1"), event(2L, "1")));
+
+        verify(quarantineRepository).saveAll(anyList());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(outboxRepository).markPublished(eq(List.of(2L)), any());
+    }
+
+    private static FlightOutbox oversizedEvent(long id, String aggregateId) {
+        char[] payload = new char[OutboxBatches.MAX_BATCH_BYTES];
+        Arrays.fill(payload, 'x');
+        return event(id, aggregateId, "\"" + new String(payload) + "\"");
+    }
+
+    private static FlightOutbox event(long id, String aggregateId) {
+        return event(id, aggregateId, "{}");
+    }
+
+    private static FlightOutbox event(long id, String aggregateId, String payload) {
+        FlightOutbox event = new FlightOutbox(aggregateId, EventType.FLIGHT_BOOKED,
+                payload.getBytes(StandardCharsets.UTF_8), "application/json", null);
+        event.setId(id);
+        return event;
+    }
+}
@@ -0,0 +1,32 @@
+package com.amazonaws.samples.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentlyProcessedTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedIds() {
+        RecentlyProcessed recentlyProcessed = new RecentlyProcessed(2, TimeUnit.MINUTES.toNanos(1));
+        recentlyProcessed.add("1");
+        recentlyProcessed.add("2");
+        recentlyProcessed.contains("1");
+        recentlyProcessed.add("3");
+
+        assertThat(recentlyProcessed.contains("1")).isTrue();
+        assertThat(recentlyProcessed.contains("2")).isFalse();
+        assertThat(recentlyProcessed.contains("3")).isTrue();
+    }
+
+    @Test
+    void forgetsExpiredIds() throws InterruptedException {
+        RecentlyProcessed recentlyProcessed = new RecentlyProcessed(2, TimeUnit.MILLISECONDS.toNanos(1));
+        recentlyProcessed.add("1");
+        Thread.sleep(5);
+
+        assertThat(recentlyProcessed.contains("1")).isFalse();
+    }
+}
@@ -0,0 +1,148 @@
+package com.amazonaws.samples.service;
+
+import com.amazonaws.samples.EmbeddedPostgresTest;
+import com.amazonaws.samples.configuration.OutboxStorageConfiguration;
+import com.amazonaws.samples.model.FlightOutbox;
+import com.amazonaws.samples.model.FlightOutbox.EventType;
+import com.amazonaws.samples.repository.OutboxRelayCheckpointRepository;
+import com.amazonaws.samples.repository.OutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(OutboxStorageConfiguration.class)
+class WalRelayTest extends EmbeddedPostgresTest {
+    private static final String DATABASE = "wal_relay";
+    private static final String SLOT = "wal_relay_test";
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private OutboxRelayCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final QueueService queueService = mock(QueueService.class);
+    private final List<Long> forwarded = new CopyOnWriteArrayList<>();
+    private WalRelay relay;
+    private Runnable onFirstForward = () -> {
+    };
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        datasource(registry, DATABASE);
+    }
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        doAnswer(invocation -> {
+            List<FlightOutbox> events = invocation.getArgument(0);
+            if (forwarded.isEmpty()) {
+                onFirstForward.run();
+            }
+            events.forEach(event -> forwarded.add(event.getId()));
+            return null;
+        }).when(queueService).forwardInOrder(anyList());
+        relay = new WalRelay(queueService, outboxRepository, checkpointRepository, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(relay, "relayMode", OutboxRelayMode.WAL);
+        ReflectionTestUtils.setField(relay, "storageMode", OutboxStorageMode.DELETE);
+        ReflectionTestUtils.setField(relay, "slotName", SLOT);
+        ReflectionTestUtils.setField(relay, "publicationName", "wal_relay_test_pub");
+        ReflectionTestUtils.setField(relay, "statusIntervalMs", 1000);
+        ReflectionTestUtils.setField(relay, "maxBatchSize", 1);
+        ReflectionTestUtils.setField(relay, "url", database(DATABASE));
+        ReflectionTestUtils.setField(relay, "username", "postgres");
+        ReflectionTestUtils.setField(relay, "password", "postgres");
+    }
+
+    @AfterEach
+    void dropSlot() {
+        relay.stop();
+        await(() -> !slotIsActive());
+        jdbcTemplate.queryForList("SELECT pg_drop_replication_slot(slot_name) FROM pg_replication_slots "
+                + "WHERE slot_name = ?", SLOT);
+        checkpointRepository.deleteAll();
+        outboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void eventsCommittedWhileDrainingAreOnlyStreamed() {
+        FlightOutbox first = record("1");
+        FlightOutbox second = record("2");
+        List<FlightOutbox> committedWhileDraining = new CopyOnWriteArrayList<>();
+        onFirstForward = () -> committedWhileDraining.add(record("3"));
+
+        relay.start();
+
+        await(() -> forwarded.size() >= 3);
+        FlightOutbox later = record("4");
+        await(() -> forwarded.contains(later.getId()));
+        assertThat(forwarded).containsExactly(first.getId(), second.getId(), committedWhileDraining.get(0).getId(),
+                later.getId());
+    }
+
+    @Test
+    void aSlotLeftWithoutCheckpointIsCreatedAgainAndItsEventsDrained() {
+        jdbcTemplate.queryForList("SELECT lsn FROM pg_create_logical_replication_slot(?, 'pgoutput')", SLOT);
+        FlightOutbox stranded = record("1");
+
+        relay.start();
+
+        await(() -> checkpointRepository.existsById(SLOT));
+        FlightOutbox later = record("2");
+        await(() -> forwarded.contains(later.getId()));
+        assertThat(forwarded).containsExactly(stranded.getId(), later.getId());
+    }
+
+    private FlightOutbox record(String aggregateId) {
+        return outboxRepository.save(new FlightOutbox(aggregateId, EventType.FLIGHT_BOOKED,
+                "{}".getBytes(StandardCharsets.UTF_8), "application/json", null));
+    }
+
+    private boolean slotIsActive() {
+        return Boolean.TRUE.equals(jdbcTemplate.query("SELECT active FROM pg_replication_slots WHERE slot_name = ?",
+                resultSet -> resultSet.next() && resultSet.getBoolean(1), SLOT));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met within 10 s").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}